@@ -7,6 +7,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -17,6 +18,11 @@ import java.util.Map;
  * A single login at program startup sets the session user.
  * All log lines use the session username.
  * Destructive ops no longer re-prompt for password (already authenticated).
+ * <p>
+ * auth.dat is parsed once into memory, keyed by the case-folded username, and
+ * read again only when its modification time or length changes (edited by
+ * hand or by another instance). A check hashes the password once and looks
+ * the user up directly.
  */
 public class Auth {
 
@@ -25,6 +31,28 @@ public class Auth {
     // Currently logged-in username (set by showLoginDialog)
     private static String sessionUser = null;
 
+    /** auth.dat as last read or written, and the file stamp it matches. */
+    private static final class Store {
+        final Map<String, String> hashes;   // folded username → hash
+        final Map<String, String> display;  // folded username → name as registered, in file order
+        final long                modified; // lastModified() of auth.dat, 0 if missing
+        final long                length;
+
+        Store(Map<String, String> users, long modified, long length) {
+            this.hashes   = new LinkedHashMap<>();
+            this.display  = new LinkedHashMap<>();
+            this.modified = modified;
+            this.length   = length;
+            for (Map.Entry<String, String> e : users.entrySet()) {
+                String key = fold(e.getKey());
+                if (hashes.putIfAbsent(key, e.getValue()) == null) display.put(key, e.getKey());
+            }
+        }
+    }
+
+    // Guarded by the class lock
+    private static Store store = null;
+
     // ── Session ───────────────────────────────────────────────────────────────
 
     /**
@@ -38,7 +66,7 @@ public class Auth {
      * True if at least one admin account exists.
      */
     static boolean hasAnyUser() {
-        return !loadAll().isEmpty();
+        return !store().hashes.isEmpty();
     }
 
     /**
@@ -157,14 +185,13 @@ public class Auth {
             return;
         }
 
-        Map<String, String> users = loadAll();
         // Check case-insensitively so "IT" and "it" are treated as the same user
-        boolean exists = users.keySet().stream().anyMatch(k -> k.equalsIgnoreCase(username));
-        if (exists) {
+        if (store().hashes.containsKey(fold(username))) {
             err(parent, "A user named \"" + username + "\" already exists.");
             return;
         }
         // Only add once, with original display-case name
+        Map<String, String> users = loadAll();
         users.put(username, hash(p1));
         flushAll(users);
         Writer.logUserAdded(sessionUser, username);
@@ -378,29 +405,47 @@ public class Auth {
     }
 
     static boolean checkCredentials(String username, String password) {
-        Map<String, String> users = loadAll();
-        for (Map.Entry<String, String> e : users.entrySet())
-            if (e.getKey().equalsIgnoreCase(username) && e.getValue().equals(hash(password))) return true;
-        return false;
+        if (username == null) return false;
+        String stored = store().hashes.get(fold(username));
+        return stored != null && stored.equals(hash(password));
     }
 
     /**
      * Returns display-name usernames (original case).
      */
     static List<String> getUsernames() {
-        return new ArrayList<>(loadAll().keySet());
+        return new ArrayList<>(store().display.values());
     }
 
     /**
-     * Loads auth.dat → LinkedHashMap<displayName, hash>.
+     * The cached store, re-read first if auth.dat changed since it was
+     * last read or written.
+     */
+    private static synchronized Store store() {
+        File f        = new File(AUTH_FILE);
+        long modified = f.lastModified();
+        long length   = f.length();
+        if (store == null || store.modified != modified || store.length != length)
+            store = new Store(read(f), modified, length);
+        return store;
+    }
+
+    /**
+     * A copy of auth.dat → LinkedHashMap<displayName, hash>, to change and
+     * pass to flushAll.
      */
     private static Map<String, String> loadAll() {
-        File f = new File(AUTH_FILE);
-        File dir = f.getParentFile();
-        if (dir != null && !dir.exists()) dir.mkdirs();
+        Store s = store();
+        Map<String, String> map = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : s.display.entrySet()) map.put(e.getValue(), s.hashes.get(e.getKey()));
+        return map;
+    }
+
+    private static Map<String, String> read(File f) {
         Map<String, String> map = new LinkedHashMap<>();
         if (!f.exists()) return map;
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(f), StandardCharsets.UTF_8))) {
             String line;
             while ((line = br.readLine()) != null) {
                 String[] parts = line.split("\\|", 2);
@@ -408,26 +453,33 @@ public class Auth {
                 else if (parts.length == 1 && !parts[0].isBlank())
                     map.put("admin", parts[0]); // legacy hash-only format
             }
-        } catch (IOException ignored) {
+        } catch (IOException e) {
+            System.err.println("[Auth] Error reading auth data: " + e.getMessage());
         }
         return map;
     }
 
     /**
-     * Saves the given map to disk.
+     * Saves the given map to disk (atomically) and makes it the cached store.
      */
-    private static void flushAll(Map<String, String> users) {
+    private static synchronized void flushAll(Map<String, String> users) {
         File f = new File(AUTH_FILE);
-        File dir = f.getParentFile();
-        if (dir != null && !dir.exists()) dir.mkdirs();
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(f))) {
-            for (Map.Entry<String, String> e : users.entrySet()) {
-                bw.write(e.getKey() + "|" + e.getValue());
-                bw.newLine();
-            }
+        try {
+            FileHandler.writeAtomically(f, bw -> {
+                for (Map.Entry<String, String> e : users.entrySet()) {
+                    bw.write(e.getKey() + "|" + e.getValue());
+                    bw.newLine();
+                }
+            });
         } catch (IOException e) {
+            store = null; // whatever is on disk now is read again
             throw new RuntimeException("Could not write auth data: " + e.getMessage());
         }
+        store = new Store(users, f.lastModified(), f.length());
+    }
+
+    private static String fold(String username) {
+        return username.toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -445,9 +497,12 @@ public class Auth {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
             byte[] bytes = md.digest(input.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : bytes) sb.append(String.format("%02x", b));
-            return sb.toString();
+            char[] hex = new char[bytes.length * 2];
+            for (int i = 0; i < bytes.length; i++) {
+                hex[2 * i]     = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+                hex[2 * i + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+            }
+            return new String(hex);
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 not available");
         }
@@ -0,0 +1,707 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Single persistent catalog of every archived file: ~/.SFADSMS/catalog.dat
+ *
+ * Replaces the old per-subfolder <subFolder>data.txt files. The whole index
+ * is loaded once into memory — sorted maps of categories and subfolders,
+ * each subfolder's files packed into a compact Record — and every listing in
+ * Fetcher, Writer and ManifestManager is answered from it instead of a
+ * directory walk.
+ *
+ * Snapshot layout (catalog.dat) — sorted by category, then subfolder, then
+ * file name, and grouped into one block ("page") per subfolder so a reader
+ * can skip a whole record using the entry count in its header:
+ *   G|<generation>
+ *   C|<category>
+ *   S|<subFolder>|<nextIndex>|<entryCount>
+ *   F|<index>|<fileName>|<timestamp>|<size>|<type>
+ *
+ * Timestamps are epoch milliseconds (when the file was archived). Older
+ * files carry the minute-precision "dd-MM-yyyy hh:mm a" text instead; it is
+ * read as local time and written back as milliseconds on the next snapshot.
+ *
+ * Journal layout (catalog.journal) — append-only, replayed over the snapshot
+ * on load, so an upload, move or rename costs one appended line no matter
+ * how many files a subfolder already holds:
+ *   G|<generation>                              must match the snapshot
+ *   +|<cat>|<sub>|<index>|<file>|<ts>|<size>|<type>   add file (index carries nextIndex)
+ *   -|<cat>|<sub>|<file>                        remove file
+ *   C|<cat>                                     add empty category
+ *   M|<fromCat>|<sub>|<toCat>|<newSub>          move/rename subfolder
+ *   D|<cat>|<sub>                               drop subfolder
+ *   RC|<old>|<new>                              rename category
+ *   DC|<cat>                                    drop category
+ *
+ * Compaction rewrites the snapshot with generation + 1 and then starts a
+ * fresh journal; a crash in between leaves a journal whose generation no
+ * longer matches, so it is skipped instead of replayed twice. Bulk changes
+ * (a reconciled subfolder) are not journaled — they force a compaction.
+ *
+ * A category or subfolder that is not in the catalog yet is reported as
+ * unknown (null) so callers can fall back to the disk.
+ *
+ * Every name is also fed to NameIndex as it changes, and the index is saved
+ * with each snapshot under the same generation.
+ */
+public class Catalog {
+
+    private static final String CATALOG = System.getProperty("user.home")
+            + File.separator + ".SFADSMS"
+            + File.separator + "catalog.dat";
+
+    private static final String JOURNAL = System.getProperty("user.home")
+            + File.separator + ".SFADSMS"
+            + File.separator + "catalog.journal";
+
+    // Journal lines kept before save() folds them into a new snapshot
+    private static final int COMPACT_AFTER = 5000;
+
+    private static final DateTimeFormatter LEGACY_TIME =
+            DateTimeFormatter.ofPattern("dd-MM-yyyy hh:mm a", Locale.ENGLISH);
+
+    /** One archived file inside a subfolder. */
+    static final class Entry {
+        final int    index;
+        final String name;
+        final long   timestamp; // epoch millis
+        final long   size;
+        final String type;
+
+        Entry(int index, String name, long timestamp, long size, String type) {
+            this.index     = index;
+            this.name      = name;
+            this.timestamp = timestamp;
+            this.size      = size;
+            this.type      = type;
+        }
+    }
+
+    /**
+     * One subfolder ("record"): its files plus the next free index.
+     *
+     * Kept columnar rather than as a map of Entry objects: names live in a
+     * NameArena (UTF-8 bytes), the other fields in primitive arrays indexed
+     * by arena slot, and order[] lists the slots sorted by name. An Entry or
+     * String only exists while a caller holds one. A removed file leaves its
+     * slot behind until dead slots outnumber live ones.
+     */
+    private static final class Record {
+        int  nextIndex = 0;
+        long version   = ++versions; // changes whenever the record does (version())
+
+        private NameArena names = new NameArena(8, 256);
+        private int[]     order = new int[8];   // position → slot, sorted by name
+        private int       size  = 0;
+        private int[]     index = new int[8];   // slot → entry fields
+        private long[]    stamp = new long[8];
+        private long[]    bytes = new long[8];
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(String name) {
+            return find(NameArena.utf8(name)) >= 0;
+        }
+
+        /** The file's timestamp, or 0 if it is not recorded. */
+        long timestampOf(String name) {
+            int pos = find(NameArena.utf8(name));
+            return pos < 0 ? 0L : stamp[order[pos]];
+        }
+
+        /** Timestamp of the newest file, 0 if empty. */
+        long newest() {
+            long max = 0;
+            for (int pos = 0; pos < size; pos++) max = Math.max(max, stamp[order[pos]]);
+            return max;
+        }
+
+        /** File names, sorted. */
+        String[] names() {
+            String[] out = new String[size];
+            for (int pos = 0; pos < size; pos++) out[pos] = names.get(order[pos]);
+            return out;
+        }
+
+        /** Entries, sorted by name — built on demand. */
+        List<Entry> entries() {
+            List<Entry> out = new ArrayList<>(size);
+            for (int pos = 0; pos < size; pos++) {
+                int    slot = order[pos];
+                String name = names.get(slot);
+                out.add(new Entry(index[slot], name, stamp[slot], bytes[slot], typeOf(name)));
+            }
+            return out;
+        }
+
+        /** Adds or replaces the entry with e's name. */
+        void put(Entry e) {
+            byte[] key = NameArena.utf8(e.name);
+            int    pos = find(key);
+            int    slot;
+            if (pos >= 0) {
+                slot = order[pos];
+            } else {
+                slot = names.add(key, 0, key.length);
+                if (slot >= index.length) growSlots(slot + 1);
+                if (size == order.length) order = Arrays.copyOf(order, size * 2);
+                int ins = -pos - 1;
+                System.arraycopy(order, ins, order, ins + 1, size - ins);
+                order[ins] = slot;
+                size++;
+            }
+            index[slot] = e.index;
+            stamp[slot] = e.timestamp;
+            bytes[slot] = e.size;
+            nextIndex   = Math.max(nextIndex, e.index + 1);
+        }
+
+        boolean remove(String name) {
+            int pos = find(NameArena.utf8(name));
+            if (pos < 0) return false;
+            System.arraycopy(order, pos + 1, order, pos, size - pos - 1);
+            size--;
+            if (names.size() - size > Math.max(64, size)) compactSlots();
+            return true;
+        }
+
+        /** Position of the key in order[], or -(insertion point) - 1. */
+        private int find(byte[] key) {
+            int lo = 0, hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c   = names.compareAt(order[mid], key);
+                if (c < 0)      lo = mid + 1;
+                else if (c > 0) hi = mid - 1;
+                else            return mid;
+            }
+            return -(lo + 1);
+        }
+
+        private void growSlots(int min) {
+            int cap = Math.max(min, index.length * 2);
+            index = Arrays.copyOf(index, cap);
+            stamp = Arrays.copyOf(stamp, cap);
+            bytes = Arrays.copyOf(bytes, cap);
+        }
+
+        /** Copies the live slots into a fresh arena, in name order. */
+        private void compactSlots() {
+            NameArena fresh = new NameArena(size, names.bytesUsed());
+            int[]     idx   = new int[Math.max(8, size)];
+            long[]    st    = new long[idx.length];
+            long[]    by    = new long[idx.length];
+            for (int pos = 0; pos < size; pos++) {
+                int old  = order[pos];
+                int slot = fresh.copyFrom(names, old);
+                idx[slot] = index[old];
+                st[slot]  = stamp[old];
+                by[slot]  = bytes[old];
+                order[pos] = slot;
+            }
+            names = fresh;
+            index = idx;
+            stamp = st;
+            bytes = by;
+        }
+    }
+
+    // category → subFolder → record; null until first access
+    private static TreeMap<String, TreeMap<String, Record>> cache = null;
+
+    private static long               generation     = 0;
+    private static long               versions       = 0; // last record version handed out
+    private static int                journalRecords = 0;
+    private static boolean            compactNeeded  = false;
+    private static final List<String> pending        = new ArrayList<>();
+
+    private static TreeMap<String, TreeMap<String, Record>> getCache() {
+        if (cache == null) cache = loadFromDisk();
+        return cache;
+    }
+
+    // ── Lookups ───────────────────────────────────────────────────────────────
+
+    /**
+     * A stamp of a subfolder's state: it changes with every file added or
+     * removed and whenever the record is created, replaced, moved or dropped.
+     * 0 if the subfolder is not indexed.
+     */
+    static synchronized long version(String category, String subFolder) {
+        Record rec = record(category, subFolder);
+        return rec == null ? 0 : rec.version;
+    }
+
+    /** True if the category has been indexed at least once. */
+    static synchronized boolean hasCategory(String category) {
+        return getCache().containsKey(category);
+    }
+
+    /** True if the subfolder has been indexed at least once. */
+    static synchronized boolean hasSubFolder(String category, String subFolder) {
+        TreeMap<String, Record> subs = getCache().get(category);
+        return subs != null && subs.containsKey(subFolder);
+    }
+
+    /** True if the file is recorded in the subfolder. */
+    static synchronized boolean hasFile(String category, String subFolder, String fileName) {
+        Record rec = record(category, subFolder);
+        return rec != null && rec.contains(fileName);
+    }
+
+    /** Indexed categories, sorted. */
+    static synchronized String[] categories() {
+        return getCache().keySet().toArray(new String[0]);
+    }
+
+    /** Indexed subfolders of a category, sorted — null if the category is unknown. */
+    static synchronized String[] subFolders(String category) {
+        TreeMap<String, Record> subs = getCache().get(category);
+        return subs == null ? null : subs.keySet().toArray(new String[0]);
+    }
+
+    /** Indexed file names of a subfolder, sorted — null if the subfolder is unknown. */
+    static synchronized String[] files(String category, String subFolder) {
+        Record rec = record(category, subFolder);
+        return rec == null ? null : rec.names();
+    }
+
+    /** Full entries of a subfolder, sorted by name — null if the subfolder is unknown. */
+    static synchronized List<Entry> entries(String category, String subFolder) {
+        Record rec = record(category, subFolder);
+        return rec == null ? null : rec.entries();
+    }
+
+    /**
+     * Sort timestamps for a listing, parallel to names: each file's own time
+     * (subFolder given) or each subfolder's newest file (subFolder == null).
+     * Names the Catalog does not know get 0.
+     */
+    static synchronized long[] timestamps(String category, String subFolder, String[] names) {
+        long[] out = new long[names.length];
+        TreeMap<String, Record> subs = getCache().get(category);
+        if (subs == null) return out;
+        if (subFolder == null) {
+            for (int i = 0; i < names.length; i++) {
+                Record rec = subs.get(names[i]);
+                if (rec != null) out[i] = rec.newest();
+            }
+        } else {
+            Record rec = subs.get(subFolder);
+            if (rec == null) return out;
+            for (int i = 0; i < names.length; i++) out[i] = rec.timestampOf(names[i]);
+        }
+        return out;
+    }
+
+    /** Total indexed files across all subfolders of a category. */
+    static synchronized int countEntries(String category) {
+        TreeMap<String, Record> subs = getCache().get(category);
+        if (subs == null) return 0;
+        int total = 0;
+        for (Record rec : subs.values()) total += rec.size();
+        return total;
+    }
+
+    // ── Mutations (journaled) ─────────────────────────────────────────────────
+
+    /** Registers an (possibly empty) category. */
+    static synchronized void ensureCategory(String category) {
+        if (applyEnsureCategory(getCache(), category)) pending.add("C|" + category);
+    }
+
+    /** Adds one file to a subfolder, creating the category/subfolder as needed. */
+    static synchronized void addFile(String category, String subFolder,
+                                     String fileName, long timestamp, long size) {
+        TreeMap<String, Record> subs = getCache().get(category);
+        Record rec   = subs == null ? null : subs.get(subFolder);
+        Entry  entry = new Entry(rec == null ? 0 : rec.nextIndex,
+                fileName, timestamp, size, typeOf(fileName));
+        applyAdd(cache, category, subFolder, entry);
+        record(category, subFolder).version = ++versions;
+        pending.add("+|" + category + "|" + subFolder + "|" + entry.index + "|" + entry.name
+                + "|" + entry.timestamp + "|" + entry.size + "|" + entry.type);
+    }
+
+    /** Removes one file entry. Returns true if it was present. */
+    static synchronized boolean removeFile(String category, String subFolder, String fileName) {
+        if (!applyRemove(getCache(), category, subFolder, fileName)) return false;
+        Record rec = record(category, subFolder);
+        if (rec != null) rec.version = ++versions;
+        pending.add("-|" + category + "|" + subFolder + "|" + fileName);
+        return true;
+    }
+
+    /** Drops a subfolder and all of its entries. */
+    static synchronized void removeSubFolder(String category, String subFolder) {
+        if (applyDropSubFolder(getCache(), category, subFolder))
+            pending.add("D|" + category + "|" + subFolder);
+    }
+
+    /** Moves a subfolder's entries under a new name and/or category. */
+    static synchronized void moveSubFolder(String fromCategory, String subFolder,
+                                           String toCategory, String newName) {
+        if (applyMove(getCache(), fromCategory, subFolder, toCategory, newName)) {
+            Record rec = record(toCategory, newName);
+            if (rec != null) rec.version = ++versions;
+            pending.add("M|" + fromCategory + "|" + subFolder + "|" + toCategory + "|" + newName);
+        }
+    }
+
+    /** Renames a category, keeping all of its subfolders. */
+    static synchronized void renameCategory(String oldName, String newName) {
+        if (applyRenameCategory(getCache(), oldName, newName))
+            pending.add("RC|" + oldName + "|" + newName);
+    }
+
+    /** Drops a category and everything inside it. */
+    static synchronized void removeCategory(String category) {
+        if (applyDropCategory(getCache(), category)) pending.add("DC|" + category);
+    }
+
+    // ── Bulk mutations (force a compaction) ───────────────────────────────────
+
+    /**
+     * Replaces the full contents of a subfolder with the given entries.
+     * Entries keep their index; the next free index continues after the highest one.
+     */
+    static synchronized void putSubFolder(String category, String subFolder, List<Entry> entries) {
+        putSubFolderIf(category, subFolder, entries, version(category, subFolder));
+    }
+
+    /**
+     * putSubFolder, only if the subfolder is still at {@code version} — no
+     * file was added or removed since the caller read it. False if it moved.
+     */
+    static synchronized boolean putSubFolderIf(String category, String subFolder, List<Entry> entries,
+                                               long version) {
+        if (version(category, subFolder) != version) return false;
+        Record rec = new Record();
+        for (Entry e : entries) rec.put(e);
+        getCache().computeIfAbsent(category, k -> new TreeMap<>()).put(subFolder, rec);
+        compactNeeded = true;
+
+        NameIndex.remove(category, subFolder, null);
+        NameIndex.add(category, subFolder, null);
+        for (String name : rec.names()) NameIndex.add(category, subFolder, name);
+        return true;
+    }
+
+    /** removeSubFolder, only if the subfolder is still at {@code version}. False if it moved. */
+    static synchronized boolean removeSubFolderIf(String category, String subFolder, long version) {
+        if (version(category, subFolder) != version) return false;
+        removeSubFolder(category, subFolder);
+        return true;
+    }
+
+    /** Drops categories no longer present on disk; true if any were dropped. */
+    static synchronized boolean retainCategories(Set<String> onDisk) {
+        boolean dropped = false;
+        for (Iterator<String> it = getCache().keySet().iterator(); it.hasNext(); ) {
+            String category = it.next();
+            if (onDisk.contains(category)) continue;
+            it.remove();
+            NameIndex.remove(category, null, null);
+            dropped = true;
+        }
+        if (dropped) compactNeeded = true;
+        return dropped;
+    }
+
+    /** Drops subfolders of a category no longer present on disk. */
+    static synchronized void retainSubFolders(String category, Set<String> onDisk) {
+        TreeMap<String, Record> subs = getCache().get(category);
+        if (subs == null) return;
+        for (Iterator<String> it = subs.keySet().iterator(); it.hasNext(); ) {
+            String subFolder = it.next();
+            if (onDisk.contains(subFolder)) continue;
+            it.remove();
+            NameIndex.remove(category, subFolder, null);
+            compactNeeded = true;
+        }
+    }
+
+    // ── Persistence ───────────────────────────────────────────────────────────
+
+    /**
+     * Persists changes since the last save: appends pending journal lines,
+     * or compacts into a fresh snapshot after a bulk change or once the
+     * journal holds COMPACT_AFTER lines.
+     */
+    static synchronized void save() {
+        if (cache == null) return;
+        if (compactNeeded || journalRecords + pending.size() > COMPACT_AFTER) {
+            compact();
+            return;
+        }
+        if (pending.isEmpty()) return;
+
+        File journal = new File(JOURNAL);
+        File parent  = journal.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        boolean fresh = !journal.exists() || journal.length() == 0;
+
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(journal, true), StandardCharsets.UTF_8))) {
+            if (fresh) {
+                bw.write("G|" + generation);
+                bw.newLine();
+            }
+            for (String line : pending) {
+                bw.write(line);
+                bw.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("[Catalog] Error appending journal: " + e.getMessage());
+            return;
+        }
+        journalRecords += pending.size();
+        pending.clear();
+    }
+
+    /** Writes a full snapshot with the next generation, then empties the journal. */
+    private static void compact() {
+        long next = generation + 1;
+        try {
+            FileHandler.writeAtomically(new File(CATALOG), bw -> {
+                bw.write("G|" + next);
+                bw.newLine();
+                for (Map.Entry<String, TreeMap<String, Record>> c : cache.entrySet()) {
+                    bw.write("C|" + c.getKey());
+                    bw.newLine();
+                    for (Map.Entry<String, Record> s : c.getValue().entrySet()) {
+                        Record rec = s.getValue();
+                        bw.write("S|" + s.getKey() + "|" + rec.nextIndex + "|" + rec.size());
+                        bw.newLine();
+                        for (Entry e : rec.entries()) {
+                            bw.write("F|" + e.index + "|" + e.name + "|" + e.timestamp
+                                    + "|" + e.size + "|" + e.type);
+                            bw.newLine();
+                        }
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("[Catalog] Error writing to disk: " + e.getMessage());
+            return;
+        }
+
+        // The snapshot now holds everything; a stale journal is ignored by generation
+        NameIndex.save(next);
+        generation     = next;
+        journalRecords = 0;
+        compactNeeded  = false;
+        pending.clear();
+        try {
+            Files.deleteIfExists(new File(JOURNAL).toPath());
+        } catch (IOException e) {
+            System.err.println("[Catalog] Could not reset journal: " + e.getMessage());
+        }
+    }
+
+    private static TreeMap<String, TreeMap<String, Record>> loadFromDisk() {
+        TreeMap<String, TreeMap<String, Record>> map = new TreeMap<>();
+        generation     = 0;
+        journalRecords = 0;
+        loadSnapshot(map);
+
+        // The index matches the snapshot's generation; the journal replay
+        // below keeps it in step. Otherwise it is rebuilt from the result.
+        boolean indexed = NameIndex.load(generation);
+        replayJournal(map);
+        if (!indexed) {
+            NameIndex.clear();
+            map.forEach((cat, subs) -> {
+                NameIndex.add(cat, null, null);
+                subs.forEach((sub, rec) -> {
+                    NameIndex.add(cat, sub, null);
+                    for (String name : rec.names()) NameIndex.add(cat, sub, name);
+                });
+            });
+            compactNeeded = true; // next save writes the rebuilt index
+        }
+        return map;
+    }
+
+    private static void loadSnapshot(TreeMap<String, TreeMap<String, Record>> map) {
+        File file = new File(CATALOG);
+        if (!file.exists()) return;
+
+        TreeMap<String, Record> subs = null;
+        Record                  rec  = null;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\\|");
+                switch (parts[0]) {
+                    case "G" -> {
+                        if (parts.length >= 2) generation = parseLong(parts[1]);
+                    }
+                    case "C" -> {
+                        if (parts.length < 2) continue;
+                        subs = map.computeIfAbsent(parts[1], k -> new TreeMap<>());
+                        rec  = null;
+                    }
+                    case "S" -> {
+                        if (subs == null || parts.length < 3) continue;
+                        rec = new Record();
+                        rec.nextIndex = parseInt(parts[2]);
+                        subs.put(parts[1], rec);
+                    }
+                    case "F" -> {
+                        if (rec == null || parts.length < 6) continue;
+                        Entry e = new Entry(parseInt(parts[1]), parts[2], parseTimestamp(parts[3]),
+                                parseLong(parts[4]), parts[5]);
+                        rec.put(e);
+                    }
+                    default -> { /* unknown record — skip */ }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Catalog] Error reading from disk: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays catalog.journal over the snapshot. A journal from another
+     * generation was already folded in (crash during compaction) and is skipped;
+     * a torn last line fails its field-count check and is dropped.
+     */
+    private static void replayJournal(TreeMap<String, TreeMap<String, Record>> map) {
+        File journal = new File(JOURNAL);
+        if (!journal.exists()) return;
+
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(journal), StandardCharsets.UTF_8))) {
+            String header = br.readLine();
+            if (header == null || !header.equals("G|" + generation)) {
+                compactNeeded = true; // stale journal — next save replaces it
+                return;
+            }
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] p = line.split("\\|");
+                switch (p[0]) {
+                    case "+" -> {
+                        if (p.length < 8) continue;
+                        applyAdd(map, p[1], p[2], new Entry(parseInt(p[3]), p[4], parseTimestamp(p[5]),
+                                parseLong(p[6]), p[7]));
+                    }
+                    case "-"  -> { if (p.length >= 4) applyRemove(map, p[1], p[2], p[3]); }
+                    case "C"  -> { if (p.length >= 2) applyEnsureCategory(map, p[1]); }
+                    case "M"  -> { if (p.length >= 5) applyMove(map, p[1], p[2], p[3], p[4]); }
+                    case "D"  -> { if (p.length >= 3) applyDropSubFolder(map, p[1], p[2]); }
+                    case "RC" -> { if (p.length >= 3) applyRenameCategory(map, p[1], p[2]); }
+                    case "DC" -> { if (p.length >= 2) applyDropCategory(map, p[1]); }
+                    default   -> { continue; }
+                }
+                journalRecords++;
+            }
+        } catch (IOException e) {
+            System.err.println("[Catalog] Error replaying journal: " + e.getMessage());
+        }
+    }
+
+    // ── Operations shared by live mutations and journal replay ────────────────
+
+    private static boolean applyEnsureCategory(TreeMap<String, TreeMap<String, Record>> map,
+                                               String category) {
+        if (map.putIfAbsent(category, new TreeMap<>()) != null) return false;
+        NameIndex.add(category, null, null);
+        return true;
+    }
+
+    private static void applyAdd(TreeMap<String, TreeMap<String, Record>> map,
+                                 String category, String subFolder, Entry e) {
+        Record rec = map.computeIfAbsent(category, k -> new TreeMap<>())
+                .computeIfAbsent(subFolder, k -> new Record());
+        rec.put(e);
+        NameIndex.add(category, subFolder, e.name);
+    }
+
+    private static boolean applyRemove(TreeMap<String, TreeMap<String, Record>> map,
+                                       String category, String subFolder, String fileName) {
+        TreeMap<String, Record> subs = map.get(category);
+        Record rec = subs == null ? null : subs.get(subFolder);
+        if (rec == null || !rec.remove(fileName)) return false;
+        NameIndex.remove(category, subFolder, fileName);
+        return true;
+    }
+
+    private static boolean applyDropSubFolder(TreeMap<String, TreeMap<String, Record>> map,
+                                              String category, String subFolder) {
+        TreeMap<String, Record> subs = map.get(category);
+        if (subs == null || subs.remove(subFolder) == null) return false;
+        NameIndex.remove(category, subFolder, null);
+        return true;
+    }
+
+    private static boolean applyDropCategory(TreeMap<String, TreeMap<String, Record>> map,
+                                             String category) {
+        if (map.remove(category) == null) return false;
+        NameIndex.remove(category, null, null);
+        return true;
+    }
+
+    private static boolean applyMove(TreeMap<String, TreeMap<String, Record>> map,
+                                     String fromCategory, String subFolder,
+                                     String toCategory, String newName) {
+        TreeMap<String, Record> from = map.get(fromCategory);
+        Record rec = from == null ? null : from.remove(subFolder);
+        if (rec == null) return false;
+        map.computeIfAbsent(toCategory, k -> new TreeMap<>()).put(newName, rec);
+        NameIndex.moveSubFolder(fromCategory, subFolder, toCategory, newName);
+        return true;
+    }
+
+    private static boolean applyRenameCategory(TreeMap<String, TreeMap<String, Record>> map,
+                                               String oldName, String newName) {
+        TreeMap<String, Record> subs = map.remove(oldName);
+        if (subs == null) return false;
+        map.put(newName, subs);
+        NameIndex.renameCategory(oldName, newName);
+        return true;
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────────
+
+    private static Record record(String category, String subFolder) {
+        TreeMap<String, Record> subs = getCache().get(category);
+        return subs == null ? null : subs.get(subFolder);
+    }
+
+    /** Lower-case extension without the dot, e.g. "pdf". */
+    static String typeOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase();
+    }
+
+    private static int parseInt(String s) {
+        try { return Integer.parseInt(s); } catch (NumberFormatException e) { return 0; }
+    }
+
+    private static long parseLong(String s) {
+        try { return Long.parseLong(s); } catch (NumberFormatException e) { return 0L; }
+    }
+
+    /** Epoch millis, or a legacy "dd-MM-yyyy hh:mm a" local time; 0 if neither. */
+    static long parseTimestamp(String s) {
+        if (!s.isEmpty() && Character.isDigit(s.charAt(s.length() - 1))) return parseLong(s);
+        try {
+            return LocalDateTime.parse(s, LEGACY_TIME)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+}
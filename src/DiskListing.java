@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass directory reads below ~/.SFADSMS/.data, with their attributes.
+ *
+ * One DirectoryStream pass collects every entry's name, type, size and mtime
+ * (BasicFileAttributes — on Windows these come with the directory read
+ * itself), instead of File.list() followed by isDirectory(), length() and
+ * lastModified() per entry.
+ *
+ * Results are kept in a size-bounded LRU keyed like Fetcher's listings
+ * ("" → .data, "cat", "cat/sub") and shared by Fetcher, Writer and
+ * ManifestManager. read() always goes to the disk (and refreshes the cache);
+ * readOnce() goes to the disk without caching; cached() reuses the last
+ * read; peek() never touches the disk. Entries are
+ * dropped together with Fetcher's (Fetcher.invalidate).
+ *
+ * streamNames() is the other way to read a directory: names only, handed
+ * over in fixed-size batches as the stream yields them, and never cached —
+ * for directories too large to hold attributes for, or to wait on.
+ */
+public class DiskListing {
+
+    private static final Path DATA_DIR = Paths.get(System.getProperty("user.home"),
+            ".SFADSMS", ".data");
+
+    /** One directory entry as read. */
+    static final class Item {
+        final String  name;
+        final boolean directory;
+        final long    size;
+        final long    modified; // epoch millis
+
+        Item(String name, boolean directory, long size, long modified) {
+            this.name      = name;
+            this.directory = directory;
+            this.size      = size;
+            this.modified  = modified;
+        }
+    }
+
+    /** One directory: its own mtime (read before the entries) and its entries. */
+    static final class Dir {
+        final long                    modified;
+        final Item[]                  items;
+        private final Map<String, Item> byName;
+
+        private Dir(long modified, Item[] items) {
+            this.modified = modified;
+            this.items    = items;
+            this.byName   = new HashMap<>(items.length * 2);
+            for (Item i : items) byName.put(i.name, i);
+        }
+
+        Item get(String name) {
+            return byName.get(name);
+        }
+
+        /** Names of the subdirectories. */
+        String[] directories() {
+            List<String> out = new ArrayList<>();
+            for (Item i : items) if (i.directory) out.add(i.name);
+            return out.toArray(new String[0]);
+        }
+
+        /** Names of the archived data files (see Fetcher.isDataFile). */
+        String[] dataFiles() {
+            List<String> out = new ArrayList<>();
+            for (Item i : items) if (!i.directory && Fetcher.isDataFile(i.name)) out.add(i.name);
+            return out.toArray(new String[0]);
+        }
+
+        /** Every entry name, in read order. */
+        String[] names() {
+            String[] out = new String[items.length];
+            for (int i = 0; i < items.length; i++) out[i] = items[i].name;
+            return out;
+        }
+    }
+
+    // ── Cache ─────────────────────────────────────────────────────────────────
+
+    private static final int CACHE_DIRS = 256;
+
+    private static final Map<String, Dir> CACHE =
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Dir> eldest) {
+                    return size() > CACHE_DIRS;
+                }
+            };
+
+    private static String key(String category, String subFolder) {
+        if (category == null) return "";
+        return subFolder == null ? category : category + "/" + subFolder;
+    }
+
+    /**
+     * Reads .data (category == null), a category (subFolder == null) or a
+     * subfolder from disk in one pass. Returns null if it is not a directory.
+     */
+    static Dir read(String category, String subFolder) {
+        Dir d = readOnce(category, subFolder);
+        String k = key(category, subFolder);
+        synchronized (CACHE) {
+            if (d == null) CACHE.remove(k);
+            else CACHE.put(k, d);
+        }
+        return d;
+    }
+
+    /**
+     * Like read(), but leaves the cache alone: for one-off walks over many
+     * directories that would otherwise push out the ones being browsed.
+     */
+    static Dir readOnce(String category, String subFolder) {
+        Path dir = category == null ? DATA_DIR
+                : subFolder == null ? DATA_DIR.resolve(category)
+                : DATA_DIR.resolve(category).resolve(subFolder);
+        return readDir(dir);
+    }
+
+    /** The last read of a directory, reading it now if it is not cached. */
+    static Dir cached(String category, String subFolder) {
+        Dir d = peek(category, subFolder);
+        return d != null ? d : read(category, subFolder);
+    }
+
+    /** The last read of a directory, or null — never touches the disk. */
+    static Dir peek(String category, String subFolder) {
+        synchronized (CACHE) {
+            return CACHE.get(key(category, subFolder));
+        }
+    }
+
+    static void invalidate(String category, String subFolder) {
+        synchronized (CACHE) {
+            CACHE.remove(key(category, subFolder));
+        }
+    }
+
+    static void invalidateCategory(String category) {
+        String prefix = category + "/";
+        synchronized (CACHE) {
+            CACHE.remove("");
+            CACHE.remove(category);
+            CACHE.keySet().removeIf(k -> k.startsWith(prefix));
+        }
+    }
+
+    /** Receives streamed names; returning false stops the read. */
+    interface NameSink {
+        boolean accept(String[] batch);
+    }
+
+    /**
+     * Streams a directory's entry names in batches: a first batch of
+     * {@code first} names (enough for a screen), then batches of {@code size}.
+     * No attributes are read. Returns false if the directory could not be
+     * read, the sink stopped it or the calling thread was interrupted.
+     */
+    static boolean streamNames(String category, String subFolder, int first, int size, NameSink sink) {
+        Path dir = subFolder == null ? DATA_DIR.resolve(category)
+                : DATA_DIR.resolve(category).resolve(subFolder);
+        String[] buf = new String[first];
+        int      n   = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                buf[n++] = p.getFileName().toString();
+                if (n < buf.length) continue;
+                if (Thread.currentThread().isInterrupted() || !sink.accept(buf)) return false;
+                buf = new String[size];
+                n   = 0;
+            }
+        } catch (IOException e) {
+            System.err.println("[DiskListing] Could not read " + dir + ": " + e.getMessage());
+            return false;
+        }
+        return !Thread.currentThread().isInterrupted() && sink.accept(Arrays.copyOf(buf, n));
+    }
+
+    // ── Disk ──────────────────────────────────────────────────────────────────
+
+    private static Dir readDir(Path dir) {
+        long modified;
+        try {
+            BasicFileAttributes self = Files.readAttributes(dir, BasicFileAttributes.class);
+            if (!self.isDirectory()) return null;
+            modified = self.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+
+        List<Item> items = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                try {
+                    BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class);
+                    items.add(new Item(p.getFileName().toString(), a.isDirectory(),
+                            a.size(), a.lastModifiedTime().toMillis()));
+                } catch (IOException e) {
+                    // removed between the read and the stat — skip it
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[DiskListing] Could not read " + dir + ": " + e.getMessage());
+            return null;
+        }
+        return new Dir(modified, items.toArray(new Item[0]));
+    }
+}
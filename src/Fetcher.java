@@ -1,16 +1,138 @@
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * Read-side listings for the sidebar and the two table levels.
+ *
+ * Every listing is answered from the Catalog first; the disk is only walked
+ * for a category or subfolder that has not been indexed yet.
+ *
+ * On top of that, each directory's listing is kept in a size-bounded LRU
+ * cache, so paging, sorting, searching and re-opening dialogs are served
+ * from memory. Nothing expires on its own: whoever changes a directory
+ * (Writer, FileHandler, Main) calls invalidate() for it, and only that
+ * directory is listed again. Returned arrays are shared — never modify them.
+ *
+ * Disk reads go through DiskListing, which keeps names together with their
+ * size and mtime; invalidate() drops its copy too.
+ *
+ * search() answers substring queries from NameIndex where it can.
+ */
 public class Fetcher {
 
     private static final String DATA_DIR = System.getProperty("user.home")
             + File.separator + ".SFADSMS" + File.separator + ".data";
 
+    // ── Listing cache ─────────────────────────────────────────────────────────
+
+    private static final int CACHE_DIRS  = 256;
+    private static final int CACHE_NAMES = 200_000; // listings are Strings — keep only so many
+
+    // streamFolderData: a first screen of names, then larger batches
+    private static final int STREAM_FIRST = 64;
+    private static final int STREAM_BATCH = 2048;
+
+    // Keys: "" → categories, "cat" → its subfolders, "cat/sub" → its files
+    private static final Map<String, String[]> CACHE =
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+                    return size() > CACHE_DIRS;
+                }
+            };
+
+    // Bumped by every invalidation; a listing loaded across one is not cached
+    private static long generation = 0;
+
+    private static String key(String category, String subFolder) {
+        if (category == null) return "";
+        return subFolder == null ? category : category + "/" + subFolder;
+    }
+
+    private static String[] cached(String key, Supplier<String[]> load) {
+        long gen;
+        synchronized (CACHE) {
+            String[] hit = CACHE.get(key);
+            if (hit != null) return hit;
+            gen = generation;
+        }
+        String[] fresh = load.get();
+        synchronized (CACHE) {
+            if (gen == generation) {
+                CACHE.put(key, fresh);
+                trim();
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Evicts least recently used listings beyond CACHE_NAMES names in total
+     * (under CACHE's lock) — down to none, so a listing larger than the whole
+     * budget is not kept once it has been shown.
+     */
+    private static void trim() {
+        long total = 0;
+        for (String[] listing : CACHE.values()) total += listing.length;
+        Iterator<String[]> it = CACHE.values().iterator();
+        while (total > CACHE_NAMES && it.hasNext()) {
+            total -= it.next().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops one cached listing: the category list (category == null),
+     * a category's subfolders (subFolder == null) or a subfolder's files.
+     */
+    static void invalidate(String category, String subFolder) {
+        synchronized (CACHE) {
+            generation++;
+            CACHE.remove(key(category, subFolder));
+        }
+        DiskListing.invalidate(category, subFolder);
+    }
+
+    /** Drops the category list plus every listing inside one category (rename, delete). */
+    static void invalidateCategory(String category) {
+        String prefix = category + "/";
+        synchronized (CACHE) {
+            generation++;
+            CACHE.remove("");
+            CACHE.remove(category);
+            for (Iterator<String> it = CACHE.keySet().iterator(); it.hasNext(); )
+                if (it.next().startsWith(prefix)) it.remove();
+        }
+        DiskListing.invalidateCategory(category);
+    }
+
+    /**
+     * True for an archived data file (pdf, png, doc, …) — excludes folders
+     * and legacy <subFolder>data.txt metadata files.
+     */
+    static boolean isDataFile(String name) {
+        return name.contains(".") && !name.endsWith(".txt");
+    }
+
     /** Top-level category folders shown in the sidebar. */
     static String[] getFolderName() {
-        File file = new File(DATA_DIR);
-        String[] collections = file.list();
-        if (collections == null) return new String[0];
+        return cached(key(null, null), Fetcher::loadFolderNames);
+    }
+
+    private static String[] loadFolderNames() {
+        String[] indexed = Catalog.categories();
+        if (indexed.length > 0) return indexed;
+
+        DiskListing.Dir data = DiskListing.cached(null, null);
+        if (data == null) return new String[0];
+        String[] collections = data.names();
 
         int valid = 0;
         for (String s : collections) if (!s.contains(".")) valid++;
@@ -29,11 +151,16 @@ public class Fetcher {
      * e.g. .data/Grade7/JuanDelaCruz  ← returned as "JuanDelaCruz"
      */
     static String[] getSubFolders(String parentFolder) {
-        File dir = new File(DATA_DIR + File.separator + parentFolder);
-        File[] items = dir.listFiles(File::isDirectory);
-        if (items == null) return new String[0];
-        String[] names = new String[items.length];
-        for (int i = 0; i < items.length; i++) names[i] = items[i].getName();
+        return cached(key(parentFolder, null), () -> loadSubFolders(parentFolder));
+    }
+
+    private static String[] loadSubFolders(String parentFolder) {
+        String[] indexed = Catalog.subFolders(parentFolder);
+        if (indexed != null) return indexed;
+
+        DiskListing.Dir dir = DiskListing.cached(parentFolder, null);
+        if (dir == null) return new String[0];
+        String[] names = dir.directories();
         Arrays.sort(names);
         return names;
     }
@@ -45,40 +172,183 @@ public class Fetcher {
      * e.g. .data/Grade7/JuanDelaCruz/report.pdf
      */
     static String[] getFolderData(String parentFolder, String subFolder) {
-        File dir = new File(DATA_DIR + File.separator + parentFolder
-                + File.separator + subFolder);
-        String[] files = dir.list();
-        if (files == null) return new String[0];
+        return cached(key(parentFolder, subFolder), () -> {
+            String[] indexed = Catalog.files(parentFolder, subFolder);
+            if (indexed != null) return indexed;
+            DiskListing.Dir dir = DiskListing.cached(parentFolder, subFolder);
+            return dir == null ? new String[0] : dir.dataFiles();
+        });
+    }
 
-        int valid = 0;
-        for (String f : files)
-            if (f.contains(".") && !f.endsWith(".txt")) valid++;
+    /**
+     * A subfolder's files if they can be had without reading the disk
+     * (cached, or indexed in the Catalog); null if the disk must be read.
+     */
+    static String[] readyFolderData(String parentFolder, String subFolder) {
+        synchronized (CACHE) {
+            String[] hit = CACHE.get(key(parentFolder, subFolder));
+            if (hit != null) return hit;
+        }
+        return Catalog.hasSubFolder(parentFolder, subFolder)
+                ? getFolderData(parentFolder, subFolder) : null;
+    }
 
-        String[] result = new String[valid];
-        int index = 0;
-        for (String f : files)
-            if (f.contains(".") && !f.endsWith(".txt")) result[index++] = f;
-        return result;
+    /**
+     * Receives a listing as it grows: the names read so far are
+     * rows[0, size). Entries below size are never written again, so the
+     * array can be shown as it is; a longer listing may come in a new array.
+     */
+    interface RowsSink {
+        boolean accept(String[] rows, int size);
     }
 
     /**
-     * Legacy overload — kept so Writer.updateFolderMetadata still compiles.
-     * Routes through the two-arg version by splitting on the first separator.
-     * Direct callers should prefer getFolderData(parent, sub).
+     * getFolderData for a subfolder that has to be read from disk, delivered
+     * as the directory is read so the first screen can be shown at once.
+     * Only names are read, into one array the sink shares rather than copies,
+     * and the complete listing is cached as getFolderData would. Returns it,
+     * or null if the sink stopped the read or the thread was interrupted.
      */
-    static String[] getFolderData(String folderName) {
-        File dir = new File(DATA_DIR + File.separator + folderName);
-        String[] files = dir.list();
-        if (files == null) return new String[0];
+    static String[] streamFolderData(String parentFolder, String subFolder, RowsSink sink) {
+        String[] ready = readyFolderData(parentFolder, subFolder);
+        if (ready != null) return sink.accept(ready, ready.length) ? ready : null;
 
-        int valid = 0;
-        for (String f : files)
-            if (f.contains(".") && !f.endsWith(".txt")) valid++;
+        long gen;
+        synchronized (CACHE) { gen = generation; }
+        String[][] rows = {new String[STREAM_BATCH]};
+        int[]      size = {0};
+        boolean complete = DiskListing.streamNames(parentFolder, subFolder, STREAM_FIRST, STREAM_BATCH, batch -> {
+            int before = size[0];
+            for (String name : batch) {
+                if (!isDataFile(name)) continue;
+                if (size[0] == rows[0].length) rows[0] = Arrays.copyOf(rows[0], rows[0].length * 2);
+                rows[0][size[0]++] = name;
+            }
+            return size[0] == before || sink.accept(rows[0], size[0]);
+        });
+        if (!complete) return null;
 
-        String[] result = new String[valid];
-        int index = 0;
-        for (String f : files)
-            if (f.contains(".") && !f.endsWith(".txt")) result[index++] = f;
-        return result;
+        String[] listing = size[0] == rows[0].length ? rows[0] : Arrays.copyOf(rows[0], size[0]);
+        synchronized (CACHE) {
+            if (gen == generation) {
+                CACHE.put(key(parentFolder, subFolder), listing);
+                trim();
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * Names inside one directory containing the query, case-insensitively:
+     * categories (category == null), a category's subfolders (subFolder == null)
+     * or a subfolder's files. Unsorted; the shared listing for an empty query.
+     * Answered by NameIndex for indexed directories (for categories, when
+     * it holds every one listed) and queries of three or more characters,
+     * otherwise by scanning the listing. Returns null if the
+     * calling thread is interrupted mid-scan (a superseded search).
+     */
+    static String[] search(String category, String subFolder, String query) {
+        String[] listing = category == null ? getFolderName()
+                : subFolder == null ? getSubFolders(category)
+                : getFolderData(category, subFolder);
+        if (query.isEmpty()) return listing;
+
+        boolean  indexed = category != null || NameIndex.holdsAll(listing);
+        String[] hits    = indexed ? NameIndex.search(category, subFolder, query) : null;
+        if (hits != null) return hits;
+
+        String            q     = query.toLowerCase(Locale.ROOT);
+        ArrayList<String> match = new ArrayList<>();
+        for (int i = 0; i < listing.length; i++) {
+            if ((i & 1023) == 0 && Thread.currentThread().isInterrupted()) return null;
+            if (listing[i].toLowerCase(Locale.ROOT).contains(q)) match.add(listing[i]);
+        }
+        return match.toArray(new String[0]);
     }
-}
\ No newline at end of file
+
+    /**
+     * Date sort keys for names listed in one directory, read from the Catalog
+     * in one call when a date sort first needs them — files are never stat'ed.
+     * Names the Catalog does not know yet use the mtime from the directory's
+     * last DiskListing read; a directory only ever streamed (names, no
+     * attributes) is read once here so that its date sort has keys at all.
+     */
+    static ListingTableModel.DateKeys dates(String category, String subFolder) {
+        return names -> {
+            long[]  stamps  = Catalog.timestamps(category, subFolder, names);
+            boolean missing = false;
+            for (long t : stamps) missing |= t == 0;
+            if (!missing) return stamps;
+
+            DiskListing.Dir dir = DiskListing.cached(category, subFolder);
+            if (dir == null) return stamps;
+            for (int i = 0; i < names.length; i++) {
+                if (stamps[i] != 0) continue;
+                DiskListing.Item item = dir.get(names[i]);
+                if (item != null) stamps[i] = item.modified;
+            }
+            return stamps;
+        };
+    }
+
+    /** Receives global search hits; returning false stops the search. */
+    interface SearchSink {
+        /** A matching category (subFolder == null), subfolder (file == null) or file. */
+        boolean accept(String category, String subFolder, String file);
+    }
+
+    /**
+     * Every category, subfolder and file in the archive whose name contains
+     * the query, streamed to the sink — at most {@code limit} hits. Indexed
+     * names come from NameIndex; short queries and categories the Catalog has
+     * not indexed yet are scanned from the Catalog and the disk directly, so
+     * the walk leaves the listing caches to the folders being browsed.
+     * Returns false if the sink stopped it or the calling thread was
+     * interrupted.
+     */
+    static boolean searchAll(String query, int limit, SearchSink sink) {
+        int[]      sent    = {0};
+        SearchSink guarded = (c, s, f) -> sent[0]++ < limit
+                && !Thread.currentThread().isInterrupted() && sink.accept(c, s, f);
+
+        String[]       categories = getFolderName(); // loads the Catalog, and with it the index
+        List<String[]> hits       = NameIndex.searchAll(query, limit);
+        if (hits != null) {
+            for (String[] hit : hits)
+                if (!guarded.accept(hit[0], hit[1], hit[2])) return false;
+        }
+
+        String q = query.toLowerCase(Locale.ROOT);
+        for (String cat : categories) {
+            if (hits != null && NameIndex.holds(cat)) continue;
+            if (cat.toLowerCase(Locale.ROOT).contains(q) && !guarded.accept(cat, null, null)) return false;
+            String[] subs = Catalog.subFolders(cat);
+            if (subs == null) {
+                DiskListing.Dir dir = DiskListing.readOnce(cat, null);
+                subs = dir == null ? new String[0] : dir.directories();
+            }
+            for (String sub : subs) {
+                if (sub.toLowerCase(Locale.ROOT).contains(q) && !guarded.accept(cat, sub, null)) return false;
+                String[] files = Catalog.files(cat, sub);
+                if (files == null) {
+                    DiskListing.Dir dir = DiskListing.readOnce(cat, sub);
+                    files = dir == null ? new String[0] : dir.dataFiles();
+                }
+                for (String file : files)
+                    if (file.toLowerCase(Locale.ROOT).contains(q) && !guarded.accept(cat, sub, file)) return false;
+                if (Thread.currentThread().isInterrupted()) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Data files actually present on disk, bypassing the Catalog (a fresh
+     * DiskListing read). Used when reconciling the Catalog against the disk.
+     */
+    static String[] listFolderData(String parentFolder, String subFolder) {
+        DiskListing.Dir dir = DiskListing.read(parentFolder, subFolder);
+        return dir == null ? new String[0] : dir.dataFiles();
+    }
+
+}
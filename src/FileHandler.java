@@ -1,16 +1,35 @@
 import javax.swing.*;
-import java.io.File;
-import java.io.IOException;
+import java.awt.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
 
 public class FileHandler {
     private static final String MAIN_LOCATION = System.getProperty("user.home")
             + File.separator + ".SFADSMS";
 
-    static boolean verify(File newFile, File oldFile) throws IOException {
-        return Files.exists(newFile.toPath())
-                && Files.size(newFile.toPath()) == Files.size(oldFile.toPath());
-    }
+    private static final int  CHUNK          = 1 << 20;
+    private static final long PROGRESS_BYTES = 16L << 20; // smaller copies show no progress dialog
+
+    private static final ExecutorService COPIER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SFADSMS-copy");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Outcome of a verified copy. */
+    enum Transfer { DONE, CANCELLED, MISMATCH }
 
     /**
      * Moves a file into  .data / category / subFolder / filename.ext
@@ -20,6 +39,12 @@ public class FileHandler {
      * field        → display name for the file
      * <p>
      * Returns the destination File on success, null on failure/cancel.
+     * <p>
+     * On the same volume the file is renamed into place (instant, no second
+     * copy on disk). Across volumes it is streamed into <name>.part with a
+     * CRC32C computed on the way, the copy is read back and checked against
+     * it, and only then renamed to its name and the source deleted; a large
+     * file shows progress and can be cancelled.
      */
     static File moveFiles(File selectedFile,
                           JComboBox<String> categoryBox,
@@ -46,37 +71,267 @@ public class FileHandler {
                 .substring(selectedFile.getName().lastIndexOf("."));
         File destinationFolder = new File(MAIN_LOCATION + File.separator + ".data"
                 + File.separator + category + File.separator + subFolder);
-        if (!destinationFolder.exists()) destinationFolder.mkdirs();
+        if (!destinationFolder.exists()) {
+            destinationFolder.mkdirs();
+            Fetcher.invalidate(null, null);
+            Fetcher.invalidate(category, null);
+        }
 
         File newFile = new File(destinationFolder, field.getText().trim() + extension);
 
+        String exists = "A file named '" + field.getText().trim() + "' already exists here.";
         if (newFile.exists()) {
-            JOptionPane.showMessageDialog(dialog,
-                    "A file named '" + field.getText().trim() + "' already exists here.");
+            JOptionPane.showMessageDialog(dialog, exists);
             return null;
         }
 
         try {
-            Files.copy(selectedFile.toPath(), newFile.toPath());
-            if (verify(newFile, selectedFile)) {
+            if (!renameInto(selectedFile, newFile)) {
+                Transfer t = copyVerified(selectedFile, newFile, dialog);
+                if (t == Transfer.CANCELLED) return null;
+                if (t == Transfer.MISMATCH) {
+                    Writer.writeLog("[ERROR] Verification failed for " + selectedFile.getName());
+                    JOptionPane.showMessageDialog(dialog,
+                            "File copy verification failed. Please try again.");
+                    return null;
+                }
                 Files.delete(selectedFile.toPath());
-                Writer.writeLog("[OPERATION] Moved " + selectedFile.getName()
-                        + " to " + newFile.getAbsolutePath());
-                dialog.dispose();
-                return newFile;
-            } else {
-                Files.deleteIfExists(newFile.toPath());
-                Writer.writeLog("[ERROR] Verification failed for " + selectedFile.getName());
-                JOptionPane.showMessageDialog(dialog,
-                        "File copy verification failed. Please try again.");
-                return null;
             }
+            Fetcher.invalidate(category, subFolder);
+            Writer.writeLog("[OPERATION] Moved " + selectedFile.getName()
+                    + " to " + newFile.getAbsolutePath());
+            dialog.dispose();
+            return newFile;
+        } catch (FileAlreadyExistsException e) { // created since the check above
+            JOptionPane.showMessageDialog(dialog, exists);
+            return null;
         } catch (IOException e) {
             JOptionPane.showMessageDialog(dialog, "Copy failed: " + e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * Renames source to target if both are on one volume; false if they are
+     * not. An atomic move replaces whatever is at the target, so the name is
+     * claimed first with an empty file (FileAlreadyExistsException if it is
+     * taken) and only that placeholder is replaced.
+     */
+    private static boolean renameInto(File source, File target) throws IOException {
+        Files.createFile(target.toPath());
+        boolean moved = false;
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } catch (AtomicMoveNotSupportedException e) {
+            return false;
+        } finally {
+            if (!moved) Files.deleteIfExists(target.toPath());
+        }
+        return true;
+    }
+
+    /**
+     * Copies source to target (which must not exist) through target.part,
+     * verified by a CRC32C of the bytes written against one of the bytes
+     * read back. A copy of PROGRESS_BYTES or more runs on COPIER behind a
+     * modal progress dialog with a Cancel button. The source is left alone.
+     */
+    static Transfer copyVerified(File source, File target, Component owner) throws IOException {
+        Copy copy = new Copy(source, target);
+        if (source.length() < PROGRESS_BYTES) return copy.run();
+
+        JDialog progress = copy.dialog(owner);
+        Future<Transfer> result = COPIER.submit(() -> {
+            try {
+                return copy.run();
+            } finally {
+                SwingUtilities.invokeLater(progress::dispose);
+            }
+        });
+        progress.setVisible(true); // modal: returns once the copy has ended
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            copy.cancelled = true;
+            Thread.currentThread().interrupt();
+            return Transfer.CANCELLED;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /** One verified copy: single pass source → .part with a running CRC32C, then a read-back pass. */
+    private static final class Copy {
+        final File        source, target, part;
+        volatile long     done      = 0;     // bytes through the current pass
+        volatile long     total     = 0;
+        volatile boolean  verifying = false;
+        volatile boolean  cancelled = false;
+
+        Copy(File source, File target) {
+            this.source = source;
+            this.target = target;
+            this.part   = new File(target.getPath() + ".part");
+        }
+
+        Transfer run() throws IOException {
+            boolean published = false;
+            try {
+                ByteBuffer buf = ByteBuffer.allocateDirect(CHUNK);
+                long written;
+                try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(part.toPath(), StandardOpenOption.CREATE_NEW,
+                             StandardOpenOption.WRITE)) {
+                    total = in.size();
+                    CRC32C sum = new CRC32C();
+                    while (in.read(buf) > 0) {
+                        if (cancelled) return Transfer.CANCELLED;
+                        buf.flip();
+                        sum.update(buf.duplicate());
+                        while (buf.hasRemaining()) out.write(buf);
+                        done += buf.limit();
+                        buf.clear();
+                    }
+                    out.force(true);
+                    written = sum.getValue();
+                    if (out.size() != in.size()) return Transfer.MISMATCH;
+                }
+
+                verifying = true;
+                done      = 0;
+                CRC32C check = new CRC32C();
+                try (FileChannel back = FileChannel.open(part.toPath(), StandardOpenOption.READ)) {
+                    while (back.read(buf) > 0) {
+                        if (cancelled) return Transfer.CANCELLED;
+                        buf.flip();
+                        done += buf.limit();
+                        check.update(buf);
+                        buf.clear();
+                    }
+                }
+                if (check.getValue() != written) return Transfer.MISMATCH;
+
+                Files.move(part.toPath(), target.toPath()); // fails rather than replace a file that appeared meanwhile
+                published = true;
+                return Transfer.DONE;
+            } finally {
+                if (!published) Files.deleteIfExists(part.toPath());
+            }
+        }
+
+        /** Modal progress dialog that follows this copy and cancels it on Cancel or close. */
+        JDialog dialog(Component owner) {
+            Window  w = owner instanceof Window ? (Window) owner
+                    : owner == null ? null : SwingUtilities.getWindowAncestor(owner);
+            JDialog d = new JDialog(w, "Copying " + source.getName(), Dialog.ModalityType.APPLICATION_MODAL);
+            JProgressBar bar    = new JProgressBar(0, 1000);
+            JLabel       label  = new JLabel("Copying…");
+            JButton      cancel = UI.buttonDesign();
+            cancel.setText("Cancel");
+            cancel.addActionListener(e -> {
+                cancelled = true;
+                cancel.setEnabled(false);
+                label.setText("Cancelling…");
+            });
+            bar.setStringPainted(true);
+
+            JPanel panel = new JPanel(new BorderLayout(0, 10));
+            panel.setBorder(BorderFactory.createEmptyBorder(16, 20, 16, 20));
+            panel.setBackground(Color.WHITE);
+            panel.add(label, BorderLayout.NORTH);
+            panel.add(bar, BorderLayout.CENTER);
+            JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+            buttons.setBackground(Color.WHITE);
+            buttons.add(cancel);
+            panel.add(buttons, BorderLayout.SOUTH);
+            d.setContentPane(panel);
+            d.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+            d.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowClosing(java.awt.event.WindowEvent e) {
+                    cancel.doClick();
+                }
+            });
+
+            Timer timer = new Timer(100, e -> {
+                long t = total;
+                if (t <= 0 || cancelled) return;
+                bar.setValue((int) ((verifying ? t + done : done) * 500 / t));
+                label.setText((verifying ? "Verifying… " : "Copying… ")
+                        + (done >> 20) + " of " + (t >> 20) + " MB");
+            });
+            timer.start();
+            d.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowClosed(java.awt.event.WindowEvent e) {
+                    timer.stop();
+                }
+            });
+            d.setSize(420, 150);
+            d.setLocationRelativeTo(owner);
+            return d;
+        }
+    }
+
+    /** Writes the body of a file written by writeAtomically. */
+    @FunctionalInterface
+    interface Body {
+        void writeTo(BufferedWriter bw) throws IOException;
+    }
+
+    /** Writes the body of a binary file written by writeAtomicallyData. */
+    @FunctionalInterface
+    interface DataBody {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Crash-safe replacement of a small state file (manifest, catalog, auth):
+     * the body goes to <target>.tmp, is forced to disk, then renamed over the
+     * target in one atomic step. A crash leaves either the old or the new
+     * file — never a truncated one — plus at most a stray .tmp.
+     */
+    static void writeAtomically(File target, Body body) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        File tmp = new File(target.getPath() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(tmp);
+             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            body.writeTo(bw);
+            bw.flush();
+            out.getFD().sync();
+        }
+        replaceWith(tmp, target);
+    }
+
+    /** Binary counterpart of writeAtomically (e.g. the name index). */
+    static void writeAtomicallyData(File target, DataBody body) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        File tmp = new File(target.getPath() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(tmp);
+             DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, 1 << 16))) {
+            body.writeTo(dos);
+            dos.flush();
+            out.getFD().sync();
+        }
+        replaceWith(tmp, target);
+    }
+
+    private static void replaceWith(File tmp, File target) throws IOException {
+        try {
+            Files.move(tmp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     /**
      * Reads the live typed text from an editable JComboBox editor first,
      * falls back to the selected model item.
@@ -0,0 +1,206 @@
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Live change tracking for ~/.SFADSMS/.data using a WatchService.
+ *
+ * Every create/delete below .data marks exactly the touched subfolder dirty
+ * in the manifest as the event arrives, so ManifestManager no longer has to
+ * count every file on every sidebar refresh to notice external changes.
+ *
+ * Registration:
+ *   Windows — one recursive (FILE_TREE) registration on .data
+ *   elsewhere — one registration per .data / category / subFolder directory
+ *
+ * Event depth below .data:
+ *   1  <category>                  → new/removed category (manifest picks it up)
+ *   2  <category>/<subFolder>      → subFolder dirty
+ *   3  <category>/<subFolder>/file → subFolder dirty
+ *
+ * Events that only echo a change the app already recorded in the Catalog
+ * (an upload, move or delete made from Main) are ignored.
+ * An OVERFLOW marks just the directory whose key overflowed for a rescan:
+ * that subFolder, that whole category, or every category for .data itself.
+ *
+ * Manifest updates are handed to the Event Dispatch Thread.
+ */
+public class FolderWatcher {
+
+    private static final Path DATA_DIR = Paths.get(System.getProperty("user.home"),
+            ".SFADSMS", ".data");
+
+    private static WatchService      service   = null;
+    private static final Map<WatchKey, Path> keys = new HashMap<>();
+    private static boolean           recursive = false;
+    private static volatile boolean  watching  = false;
+
+    /** True while the watcher thread is running and registered. */
+    static boolean isWatching() {
+        return watching;
+    }
+
+    /**
+     * Registers .data and starts the background watcher thread.
+     * Safe to call more than once; failures leave the app on count-based detection.
+     */
+    static synchronized void start() {
+        if (service != null) return;
+        try {
+            Files.createDirectories(DATA_DIR);
+            service = FileSystems.getDefault().newWatchService();
+            registerTree(DATA_DIR);
+        } catch (IOException e) {
+            System.err.println("[Watcher] Could not start: " + e.getMessage());
+            service = null;
+            return;
+        }
+
+        Thread t = new Thread(FolderWatcher::run, "SFADSMS-watcher");
+        t.setDaemon(true);
+        watching = true;
+        t.start();
+    }
+
+    // ── Registration ─────────────────────────────────────────────────────────
+
+    private static void registerTree(Path root) throws IOException {
+        if (root.equals(DATA_DIR)) {
+            try {
+                WatchEvent.Modifier fileTree = com.sun.nio.file.ExtendedWatchEventModifier.FILE_TREE;
+                keys.put(DATA_DIR.register(service, new WatchEvent.Kind<?>[]{
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE}, fileTree), DATA_DIR);
+                recursive = true;
+                return;
+            } catch (UnsupportedOperationException e) {
+                recursive = false; // per-directory registration below
+            }
+        }
+        if (recursive) return;
+
+        // .data / category / subFolder — stop at subFolder depth so the files
+        // inside each subFolder are never listed just to register a watch
+        Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), 2 - depth(root),
+                new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                            throws IOException {
+                        register(dir);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                            throws IOException {
+                        if (attrs.isDirectory()) register(file);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+    }
+
+    private static void register(Path dir) throws IOException {
+        keys.put(dir.register(service,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE), dir);
+    }
+
+    /** 0 for .data, 1 for a category, 2 for a subFolder, 3 for a file. */
+    private static int depth(Path p) {
+        Path rel = DATA_DIR.relativize(p);
+        return rel.toString().isEmpty() ? 0 : rel.getNameCount();
+    }
+
+    // ── Event loop ───────────────────────────────────────────────────────────
+
+    private static void run() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path     dir;
+                synchronized (FolderWatcher.class) { dir = keys.get(key); }
+
+                if (dir != null) {
+                    for (WatchEvent<?> ev : key.pollEvents()) {
+                        if (ev.kind() == StandardWatchEventKinds.OVERFLOW) onOverflow(dir);
+                        else onEvent(ev.kind(), dir.resolve((Path) ev.context()));
+                    }
+                }
+
+                if (!key.reset()) {
+                    synchronized (FolderWatcher.class) { keys.remove(key); }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watching = false;
+        }
+    }
+
+    private static void onEvent(WatchEvent.Kind<?> kind, Path path) {
+        Path rel = DATA_DIR.relativize(path);
+        int  d   = rel.getNameCount();
+        if (d < 1 || d > 3) return;
+
+        String  category = rel.getName(0).toString();
+        boolean created  = kind == StandardWatchEventKinds.ENTRY_CREATE;
+
+        if (created && !recursive && d < 3 && Files.isDirectory(path)) {
+            try {
+                synchronized (FolderWatcher.class) { registerTree(path); }
+            } catch (IOException e) {
+                System.err.println("[Watcher] Could not register " + path + ": " + e.getMessage());
+            }
+        }
+
+        if (d == 1) return; // new/removed categories are found by ManifestManager.syncManifest
+
+        String subFolder = rel.getName(1).toString();
+        if (d == 2) {
+            if (created == Catalog.hasSubFolder(category, subFolder)) return; // already recorded
+        } else {
+            String name = rel.getName(2).toString();
+            if (!Fetcher.isDataFile(name)) return;
+            if (created == Catalog.hasFile(category, subFolder, name)) return; // already recorded
+        }
+        markChanged(category, subFolder);
+    }
+
+    /**
+     * Events for this key were dropped: rescan only the directory it watches
+     * (every category if .data itself overflowed) and pick up new directories.
+     */
+    private static void onOverflow(Path dir) {
+        if (!recursive) {
+            try {
+                synchronized (FolderWatcher.class) { registerTree(dir); }
+            } catch (IOException e) {
+                System.err.println("[Watcher] Could not re-register " + dir + ": " + e.getMessage());
+            }
+        }
+
+        Path rel = DATA_DIR.relativize(dir);
+        switch (depth(dir)) {
+            case 0 -> {
+                File[] cats = DATA_DIR.toFile().listFiles(File::isDirectory);
+                if (cats != null) for (File c : cats) markChanged(c.getName(), null);
+            }
+            case 1  -> markChanged(rel.getName(0).toString(), null);
+            default -> markChanged(rel.getName(0).toString(), rel.getName(1).toString());
+        }
+    }
+
+    /** Flags one subfolder, or the whole category when subFolder is null. */
+    private static void markChanged(String category, String subFolder) {
+        SwingUtilities.invokeLater(() -> {
+            if (subFolder == null) ManifestManager.markFolderChanged(category);
+            else ManifestManager.markSubFolderChanged(category, subFolder);
+        });
+    }
+}
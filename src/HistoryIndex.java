@@ -0,0 +1,378 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Secondary index over the audit log: which log lines concern a record
+ * (category/subfolder) or a file (category/subfolder/file):
+ * ~/.SFADSMS/history.idx
+ *
+ * A line is addressed by its ordinal in the whole log (LogSegments.scan), so
+ * rotation and compression never move it. LogAppender hands every line it
+ * writes to record(); the event's category / subfolder / file keys get its
+ * ordinal, and renames and moves carry the history over: after RENAME-FILE
+ * a→b, b's history starts with a's. The old key keeps its lines.
+ *
+ * The file is written a few seconds after a change and when the appender
+ * shuts down, stamped with the number of lines it covers:
+ *   "SFHI" | version | lines | keyCount
+ *   keyCount × (key, count, count × delta-encoded ordinal)
+ * At start-up the log lines it is missing (a crash before the last save) are
+ * read back and indexed; a missing or unreadable file is rebuilt from the
+ * whole log. Both happen on the "SFADSMS-history" thread — lines logged in
+ * the meantime wait in a backlog, and of() answers null until it is done.
+ */
+public class HistoryIndex {
+
+    private static final String INDEX = System.getProperty("user.home")
+            + File.separator + ".SFADSMS"
+            + File.separator + "history.idx";
+
+    private static final int  MAGIC         = 0x53464849; // "SFHI"
+    private static final int  VERSION       = 1;
+    private static final long SAVE_DELAY_MS = 10_000;
+
+    /** Growable, ascending list of ordinals. */
+    private static final class IntList {
+        int[] ids = new int[4];
+        int   size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                if (Arrays.binarySearch(ids, 0, size, id) >= 0) return;
+                merge(new int[]{id}, 1);
+                return;
+            }
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        /** Adds every id of another list, keeping the order and dropping duplicates. */
+        void merge(int[] other, int n) {
+            int[] out = new int[size + n];
+            int i = 0, j = 0, k = 0;
+            while (i < size || j < n) {
+                int next = j >= n || (i < size && ids[i] <= other[j]) ? ids[i++] : other[j++];
+                if (k == 0 || out[k - 1] != next) out[k++] = next;
+            }
+            ids  = out;
+            size = k;
+        }
+    }
+
+    private static final ScheduledExecutorService WORKER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SFADSMS-history");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // "cat/sub" and "cat/sub/file" → ordinals of the lines about them; guarded by the class lock
+    private static final TreeMap<String, IntList> keys = new TreeMap<>();
+    private static long    lines   = 0;     // log lines indexed (the next ordinal)
+    private static boolean started = false;
+    private static boolean ready   = false;
+    private static boolean broken  = false; // a build failed: never saved, rebuilt next start
+    private static boolean dirty   = false;
+    private static boolean saving  = false; // a save is scheduled
+    private static final List<Object[]> backlog = new ArrayList<>(); // {ordinal, action, details}
+
+    // ── Appender side ─────────────────────────────────────────────────────────
+
+    /**
+     * Called once by LogAppender, before its first line, with the ordinal
+     * that line will get. Loads the index and indexes what it is missing.
+     */
+    static synchronized void start(long next) {
+        if (started) return;
+        started = true;
+        long covered = load();
+        if (covered == next) {
+            ready = true;
+            return;
+        }
+        long from = covered >= 0 && covered < next ? covered : 0;
+        if (from == 0) keys.clear();
+        lines = from;
+        WORKER.execute(() -> build(from, next));
+    }
+
+    /** Indexes one line the appender has just written. */
+    static synchronized void record(long ordinal, String action, String details) {
+        if (!started) return;
+        if (!ready) {
+            backlog.add(new Object[]{ordinal, action, details});
+            return;
+        }
+        index(ordinal, action, details);
+        lines = ordinal + 1;
+        dirty = true; // the count of lines covered changed, even if no key did
+        scheduleSave();
+    }
+
+    /** Saves now if anything changed (appender shutdown). */
+    static synchronized void close() {
+        if (ready && dirty) save();
+    }
+
+    private static void build(long from, long to) {
+        try {
+            LogSegments.scan(from, to, (ordinal, line) -> {
+                String[] p = LogSegments.parse(line);
+                if (p[0] != null && p[1] != null) {
+                    synchronized (HistoryIndex.class) {
+                        index(ordinal, p[1], p[3]);
+                    }
+                }
+                return true;
+            });
+        } catch (IOException e) {
+            System.err.println("[HistoryIndex] Could not read the log, history is incomplete: " + e.getMessage());
+            synchronized (HistoryIndex.class) {
+                broken = true;
+            }
+        }
+        synchronized (HistoryIndex.class) {
+            lines = to;
+            for (Object[] b : backlog) {
+                index((Long) b[0], (String) b[1], (String) b[2]);
+                lines = (Long) b[0] + 1;
+            }
+            backlog.clear();
+            ready = true;
+            dirty = true;
+            scheduleSave();
+        }
+    }
+
+    // ── Queries ───────────────────────────────────────────────────────────────
+
+    /**
+     * Ordinals of the log lines about a record (fileName == null) or a file,
+     * oldest first; empty if there are none, null while the index is still
+     * being built.
+     */
+    static int[] of(String category, String subFolder, String fileName) {
+        LogAppender.begin();
+        synchronized (HistoryIndex.class) {
+            if (!ready) return null;
+            IntList l = keys.get(key(category, subFolder, fileName));
+            return l == null ? new int[0] : Arrays.copyOf(l.ids, l.size);
+        }
+    }
+
+    /** The lines at the given ordinals (ascending), as LogSegments.parse() rows in the same order. */
+    static List<String[]> read(int[] ordinals) throws IOException {
+        List<String[]> out = new ArrayList<>();
+        if (ordinals.length == 0) return out;
+        Writer.flushLog();
+        LogSegments.scan(ordinals[0], ordinals[ordinals.length - 1] + 1L, new LogSegments.LineSink() {
+            int at = 0;
+
+            @Override
+            public boolean accept(long ordinal, String line) {
+                while (at < ordinals.length && ordinals[at] < ordinal) at++;
+                if (at < ordinals.length && ordinals[at] == ordinal) out.add(LogSegments.parse(line));
+                return at < ordinals.length;
+            }
+
+            @Override
+            public boolean wants(long first, long end) {
+                int i = Arrays.binarySearch(ordinals, (int) first);
+                if (i < 0) i = -i - 1;
+                return i < ordinals.length && ordinals[i] < end;
+            }
+        });
+        return out;
+    }
+
+    // ── Indexing ──────────────────────────────────────────────────────────────
+
+    /** Files the ordinal of one event under the keys it concerns (under the class lock). */
+    private static void index(long ordinal, String action, String details) {
+        Map<String, String> f = fields(details);
+        int    id  = (int) ordinal;
+        String cat = f.get("category"), sub = f.get("subfolder");
+        switch (action) {
+            case "UPLOAD":
+            case "DELETE-FILE":
+                add(key(cat, sub, null), id);
+                add(key(cat, sub, f.get("file")), id);
+                break;
+            case "DELETE-SUBFOLDER":
+                add(key(cat, sub, null), id);
+                break;
+            case "DELETE-CATEGORY":
+                if (cat != null) addTree(cat + "/", id);
+                break;
+            case "RENAME-FILE":
+                add(key(cat, sub, null), id);
+                add(key(cat, sub, f.get("old")), id);
+                inherit(key(cat, sub, f.get("old")), key(cat, sub, f.get("new")));
+                break;
+            case "MOVE-FILE": {
+                String from = f.get("from"), to = f.get("to"), file = f.get("file");
+                if (from == null || to == null || file == null) break;
+                add(from, id);
+                add(from + "/" + file, id);
+                inherit(from + "/" + file, to + "/" + file);
+                add(to, id);
+                break;
+            }
+            case "RENAME-SUBFOLDER":
+                if (cat == null || f.get("old") == null || f.get("new") == null) break;
+                add(cat + "/" + f.get("old"), id);
+                moveTree(cat + "/" + f.get("old"), cat + "/" + f.get("new"), id);
+                break;
+            case "MOVE-SUBFOLDER":
+                if (sub == null || f.get("from") == null || f.get("to") == null) break;
+                add(f.get("from") + "/" + sub, id);
+                moveTree(f.get("from") + "/" + sub, f.get("to") + "/" + sub, id);
+                break;
+            case "RENAME-CATEGORY":
+                if (f.get("old") == null || f.get("new") == null) break;
+                moveTree(f.get("old"), f.get("new"), id);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static String key(String category, String subFolder, String fileName) {
+        if (category == null || subFolder == null) return null;
+        return fileName == null ? category + "/" + subFolder : category + "/" + subFolder + "/" + fileName;
+    }
+
+    private static void add(String key, int id) {
+        if (key == null) return;
+        keys.computeIfAbsent(key, k -> new IntList()).add(id);
+        dirty = true;
+    }
+
+    /** Adds an ordinal to every key under a prefix ending in '/'. */
+    private static void addTree(String prefix, int id) {
+        for (IntList l : keys.subMap(prefix, prefix + Character.MAX_VALUE).values()) l.add(id);
+        dirty = true;
+    }
+
+    /** The new key's history starts with the old key's. */
+    private static void inherit(String from, String to) {
+        if (from == null || to == null || from.equals(to)) return;
+        IntList src = keys.get(from);
+        if (src == null) return;
+        keys.computeIfAbsent(to, k -> new IntList()).merge(src.ids, src.size);
+        dirty = true;
+    }
+
+    /** inherit() for a record or category and everything under it, plus the ordinal of the move itself. */
+    private static void moveTree(String from, String to, int id) {
+        if (from.equals(to)) return;
+        List<String> under = new ArrayList<>();
+        if (keys.containsKey(from)) under.add(from);
+        under.addAll(keys.subMap(from + "/", from + "/" + Character.MAX_VALUE).keySet());
+        for (String k : under) {
+            String target = to + k.substring(from.length());
+            inherit(k, target);
+            add(target, id);
+        }
+    }
+
+    /** "k=v | k=v" → map (first value wins). */
+    private static Map<String, String> fields(String details) {
+        Map<String, String> out = new HashMap<>();
+        for (String field : details.split(" \\| ")) {
+            int eq = field.indexOf('=');
+            if (eq > 0) out.putIfAbsent(field.substring(0, eq), field.substring(eq + 1));
+        }
+        return out;
+    }
+
+    // ── Persistence ───────────────────────────────────────────────────────────
+
+    private static void scheduleSave() {
+        if (saving || broken) return;
+        saving = true;
+        WORKER.schedule(() -> {
+            synchronized (HistoryIndex.class) {
+                saving = false;
+                if (dirty) save();
+            }
+        }, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Lines covered by history.idx, or -1 if it is missing or unreadable (keys filled on success). */
+    private static long load() {
+        keys.clear();
+        File file = new File(INDEX);
+        if (!file.exists()) return -1;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return -1;
+            long covered = in.readLong();
+            int  count   = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String  key = in.readUTF();
+                int     n   = in.readInt();
+                IntList l   = new IntList();
+                l.ids = new int[Math.max(4, n)];
+                int prev = 0;
+                for (int j = 0; j < n; j++) {
+                    prev += readVarInt(in);
+                    l.ids[j] = prev;
+                }
+                l.size = n;
+                keys.put(key, l);
+            }
+            lines = covered;
+            return covered;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[HistoryIndex] Unusable index, rebuilding: " + e.getMessage());
+            keys.clear();
+            return -1;
+        }
+    }
+
+    private static void save() {
+        if (broken) return;
+        try {
+            FileHandler.writeAtomicallyData(new File(INDEX), out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(lines);
+                out.writeInt(keys.size());
+                for (Map.Entry<String, IntList> e : keys.entrySet()) {
+                    IntList l = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeInt(l.size);
+                    int prev = 0;
+                    for (int i = 0; i < l.size; i++) {
+                        writeVarInt(out, l.ids[i] - prev);
+                        prev = l.ids[i];
+                    }
+                }
+            });
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("[HistoryIndex] Error writing to disk: " + e.getMessage());
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0, shift = 0, b;
+        do {
+            b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return v;
+    }
+}
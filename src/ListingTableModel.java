@@ -0,0 +1,196 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.Locale;
+
+/**
+ * Table model for one directory listing — Level 1 (sub-folders) or
+ * Level 2 (files) of the data area.
+ *
+ * Columns: "#", the name, "Actions" (the name again, for the action editor).
+ *
+ * The model is created once per level and reused: navigating, sorting and
+ * searching only swap the row array and fire one change event, so the JTable,
+ * its renderers and editors are never rebuilt. JTable only paints the rows in
+ * view, so a listing of 100k names scrolls without any pagination.
+ *
+ * Sorting works on a Listing: its names plus a permutation per sort type,
+ * each computed once from precomputed keys (folded names, or Catalog
+ * timestamps fetched in one call). Reversing only reads the same permutation
+ * backwards, and switching back to a sort already computed costs nothing.
+ *
+ * While a directory is still being read (Fetcher.streamFolderData) the model
+ * can show it unsorted as it grows — startPartial() / showPartial(), on the
+ * reader's own array, not a copy — until show() or update() puts the
+ * finished, sorted listing in place.
+ */
+class ListingTableModel extends AbstractTableModel {
+
+    /** Supplies the date sort key of each name, parallel to the array. */
+    interface DateKeys {
+        long[] of(String[] names);
+    }
+
+    /** Compares two indices into a listing's names. */
+    private interface IndexOrder {
+        int compare(int a, int b);
+    }
+
+    /** One listing with its sort orders, computed on first use. Safe off the EDT. */
+    static final class Listing {
+        private static final int RUN = 32;
+
+        final String[]          names;
+        private final DateKeys  dates;
+        private int[]           byName, byDate;
+
+        Listing(String[] names, DateKeys dates) {
+            this.names = names;
+            this.dates = dates;
+        }
+
+        /** Row → index into names: A-Z, or newest first. */
+        synchronized int[] order(boolean newestFirst) {
+            if (!newestFirst) {
+                if (byName == null) byName = sortByName();
+                return byName;
+            }
+            if (byDate == null) byDate = sortByDate();
+            return byDate;
+        }
+
+        private int[] sortByName() {
+            String[] keys = new String[names.length];
+            for (int i = 0; i < names.length; i++) keys[i] = names[i].toLowerCase(Locale.ROOT);
+            return sortIndices((a, b) -> keys[a].compareTo(keys[b]));
+        }
+
+        private int[] sortByDate() {
+            long[] stamps = dates.of(names);
+            int[]  alpha  = order(false); // ties stay A-Z
+            int[]  rank   = new int[names.length];
+            for (int r = 0; r < alpha.length; r++) rank[alpha[r]] = r;
+            return sortIndices((a, b) -> stamps[a] != stamps[b]
+                    ? Long.compare(stamps[b], stamps[a])
+                    : Integer.compare(rank[a], rank[b]));
+        }
+
+        /**
+         * 0 .. names.length - 1 in cmp order, ties kept in index order: a
+         * merge sort on int[] (insertion-sorted runs of RUN, then merged
+         * bottom-up), so no index is boxed.
+         */
+        private int[] sortIndices(IndexOrder cmp) {
+            int   n   = names.length;
+            int[] idx = new int[n];
+            int[] tmp = new int[n];
+            for (int i = 0; i < n; i++) idx[i] = i;
+            for (int lo = 0; lo < n; lo += RUN) {
+                int hi = Math.min(lo + RUN, n);
+                for (int i = lo + 1; i < hi; i++) {
+                    int v = idx[i], j = i;
+                    for (; j > lo && cmp.compare(v, idx[j - 1]) < 0; j--) idx[j] = idx[j - 1];
+                    idx[j] = v;
+                }
+            }
+            for (int width = RUN; width < n; width *= 2) {
+                for (int lo = 0; lo < n; lo += 2 * width) {
+                    int mid = Math.min(lo + width, n), hi = Math.min(lo + 2 * width, n);
+                    int i = lo, j = mid, k = lo;
+                    while (i < mid && j < hi) tmp[k++] = cmp.compare(idx[j], idx[i]) < 0 ? idx[j++] : idx[i++];
+                    while (i < mid) tmp[k++] = idx[i++];
+                    while (j < hi) tmp[k++] = idx[j++];
+                }
+                int[] t = idx;
+                idx = tmp;
+                tmp = t;
+            }
+            return idx;
+        }
+    }
+
+    private static final Listing EMPTY = new Listing(new String[0], names -> new long[0]);
+
+    private final String[] columns;
+    private Listing        listing = EMPTY;
+    private int[]          order   = new int[0];
+    private boolean        reverse = false;
+
+    // Rows of a listing still being read, in arrival order (shared with the reader); null otherwise
+    private String[] partial     = null;
+    private int      partialSize = 0;
+
+    ListingTableModel(String nameColumn) {
+        this.columns = new String[]{"#", nameColumn, "Actions"};
+    }
+
+    /**
+     * Shows {@code names} (e.g. a Fetcher.search result), A-Z or newest first,
+     * optionally reversed. The array itself is never modified.
+     */
+    void update(String[] names, DateKeys dates, boolean newestFirst, boolean reverse) {
+        show(new Listing(names, dates), newestFirst, reverse);
+    }
+
+    /** Shows a listing whose order may already have been computed on a background thread. */
+    void show(Listing listing, boolean newestFirst, boolean reverse) {
+        this.listing = listing;
+        this.partial = null;
+        sortBy(newestFirst, reverse);
+    }
+
+    /** Re-sorts the rows shown, without listing anything again. A partial listing is left as is. */
+    void sortBy(boolean newestFirst, boolean reverse) {
+        if (partial != null) return; // sorted once it is complete
+        this.order   = listing.order(newestFirst);
+        this.reverse = reverse;
+        fireTableDataChanged();
+    }
+
+    /** Empties the table for a listing that will arrive in batches. */
+    void startPartial() {
+        partial     = new String[0];
+        partialSize = 0;
+        listing     = EMPTY;
+        order       = new int[0];
+        fireTableDataChanged();
+    }
+
+    /** Shows rows[0, size) of a partial listing (Fetcher.RowsSink), adding the rows new since the last call. */
+    void showPartial(String[] rows, int size) {
+        if (partial == null || size <= partialSize) return;
+        int first = partialSize;
+        partial     = rows;
+        partialSize = size;
+        fireTableRowsInserted(first, size - 1);
+    }
+
+    /** Name shown in a view row. */
+    String nameAt(int row) {
+        if (partial != null) return partial[row];
+        return listing.names[order[reverse ? order.length - 1 - row : row]];
+    }
+
+    @Override
+    public int getRowCount() {
+        return partial != null ? partialSize : order.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int col) {
+        return columns[col];
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        return col == 0 ? row + 1 : nameAt(row);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int col) {
+        return col == 2;
+    }
+}
@@ -0,0 +1,492 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background appender for the audit log: ~/.SFADSMS/.log/.log.txt
+ *
+ * Writer.log only drops an event into a bounded ring buffer and returns;
+ * one "SFADSMS-log" thread formats the events and appends them in batches
+ * through a single FileChannel that stays open for the life of the app.
+ *
+ * Batching: once an event arrives the thread lingers up to LINGER_MS for
+ * more (never past BATCH events), then writes them all with one write call.
+ * Back-pressure: when the ring is full, callers wait for the thread to catch
+ * up instead of events being dropped.
+ * Durability (system property sfadsms.log.fsync):
+ *   never    — leave it to the OS
+ *   batch    — fsync after every batch
+ *   interval — fsync at most every SYNC_INTERVAL_MS (default); a batch left
+ *              unsynced when the log goes quiet is synced SYNC_INTERVAL_MS
+ *              after the last sync by the thread itself
+ *
+ * A shutdown hook drains the ring and syncs the file before the JVM exits;
+ * flush() waits until everything logged so far is written.
+ *
+ * Every line ends with its LogChain digest, chained on from the last line of
+ * the previous run.
+ *
+ * Rotation: once the file reaches LogSegments.ROTATE_BYTES or its first line
+ * is LogSegments.ROTATE_AGE_MS old, it is moved aside between two batches and
+ * a new one is started; LogSegments compresses and indexes the old one.
+ */
+public class LogAppender {
+
+    private static final DateTimeFormatter LOG_TS =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    enum Sync { NEVER, BATCH, INTERVAL }
+
+    private static final int  CAPACITY         = 4096;
+    private static final int  BATCH            = 512;
+    private static final long LINGER_MS        = Long.getLong("sfadsms.log.lingerMs", 20);
+    private static final long SYNC_INTERVAL_MS = Long.getLong("sfadsms.log.fsyncMs", 1000);
+    private static final Sync SYNC             = parseSync(System.getProperty("sfadsms.log.fsync"));
+
+    /** One logged event; action == null marks a raw, preformatted line. */
+    private static final class Event {
+        final long   time;
+        final String action, user, details;
+
+        Event(long time, String action, String user, String details) {
+            this.time    = time;
+            this.action  = action;
+            this.user    = user;
+            this.details = details;
+        }
+    }
+
+    // Ring buffer of pending events, guarded by LOCK
+    private static final ReentrantLock LOCK     = new ReentrantLock();
+    private static final Condition     notEmpty = LOCK.newCondition();
+    private static final Condition     notFull  = LOCK.newCondition();
+    private static final Condition     written  = LOCK.newCondition();
+    private static final Event[]       ring     = new Event[CAPACITY];
+    private static int                 head     = 0;
+    private static int                 count    = 0;
+    private static long                appended = 0; // events accepted
+    private static long                done     = 0; // events on disk (or given up on)
+    private static boolean             closed   = false;
+    private static Thread              thread   = null;
+
+    // Appender thread only
+    private static FileChannel         channel    = null;
+    private static long                lastSync   = 0;
+    private static boolean             unsynced   = false; // a batch written since lastSync
+    private static long                size       = 0; // bytes in the open file
+    private static long                firstTime  = 0; // epoch ms of its first line, 0 if unknown
+    private static boolean             recovered  = false;
+    private static long                nextLine   = 0; // ordinal of the next line (LogSegments.scan)
+    private static byte[]              chain      = null; // digest of the last line written (LogChain)
+    private static long                lastSecond = Long.MIN_VALUE;
+    private static String              lastStamp  = "";
+    private static final StringBuilder line       = new StringBuilder(256);
+
+    // ── Producers ─────────────────────────────────────────────────────────────
+
+    /** Queues one structured event, stamped now. Blocks only while the ring is full. */
+    static void append(String action, String user, String details) {
+        offer(new Event(System.currentTimeMillis(), action, user, details));
+    }
+
+    /** Queues one preformatted line. */
+    static void appendRaw(String raw) {
+        offer(new Event(System.currentTimeMillis(), null, null, raw));
+    }
+
+    private static void offer(Event e) {
+        LOCK.lock();
+        try {
+            if (thread == null && !closed) start();
+            while (count == CAPACITY && !closed) notFull.awaitUninterruptibly();
+            if (!closed) {
+                ring[(head + count) % CAPACITY] = e;
+                count++;
+                appended++;
+                notEmpty.signal();
+                return;
+            }
+        } finally {
+            LOCK.unlock();
+        }
+        writeAfterClose(e);
+    }
+
+    /** Starts the appender, if nothing has been logged yet, so the log and its history index are opened. */
+    static void begin() {
+        LOCK.lock();
+        try {
+            if (thread == null && !closed) start();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /** Waits until every event queued before this call has been written. */
+    static void flush() {
+        LOCK.lock();
+        try {
+            long target = appended;
+            while (done < target && thread != null && thread.isAlive())
+                written.awaitUninterruptibly();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    // ── Appender thread ───────────────────────────────────────────────────────
+
+    private static void start() {
+        thread = new Thread(LogAppender::run, "SFADSMS-log");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(LogAppender::close, "SFADSMS-log-shutdown"));
+    }
+
+    /** Stops accepting events into the ring, drains it and syncs the file. */
+    static void close() {
+        Thread t;
+        LOCK.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            t = thread;
+        } finally {
+            LOCK.unlock();
+        }
+        if (t == null) return;
+        try {
+            t.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void run() {
+        try {
+            channel = open();
+        } catch (IOException e) {
+            System.err.println("[LogAppender] Could not open log: " + e.getMessage());
+        }
+        Event[] batch = new Event[BATCH];
+        while (true) {
+            int n = 0;
+            LOCK.lock();
+            try {
+                awaitEvents();
+                if (count == 0 && closed) break; // closed and drained
+                if (count > 0) {
+                    lingerForBatch();
+                    n = Math.min(count, BATCH);
+                    for (int i = 0; i < n; i++) {
+                        batch[i] = ring[head];
+                        ring[head] = null;
+                        head = (head + 1) % CAPACITY;
+                    }
+                    count -= n;
+                    notFull.signalAll();
+                }
+            } finally {
+                LOCK.unlock();
+            }
+            if (n == 0) { // quiet since a batch that is still unsynced
+                syncDeferred();
+                continue;
+            }
+
+            writeBatch(batch, n, batch[0].time);
+
+            LOCK.lock();
+            try {
+                done += n;
+                written.signalAll();
+            } finally {
+                LOCK.unlock();
+            }
+        }
+        closeChannel();
+        HistoryIndex.close();
+    }
+
+    /**
+     * Waits for events (under LOCK). With a batch still unsynced, waits only
+     * until its fsync is due, and returns with the ring empty if it is.
+     */
+    private static void awaitEvents() {
+        while (count == 0 && !closed) {
+            if (!unsynced) {
+                notEmpty.awaitUninterruptibly();
+                continue;
+            }
+            long left = lastSync + SYNC_INTERVAL_MS - System.currentTimeMillis();
+            if (left <= 0) return;
+            try {
+                notEmpty.await(left, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /** Fsyncs the last batch written, which no later batch came to carry along. */
+    private static void syncDeferred() {
+        try {
+            if (channel != null) channel.force(false);
+        } catch (IOException e) {
+            System.err.println("[LogAppender] Could not sync log: " + e.getMessage());
+        }
+        lastSync = System.currentTimeMillis();
+        unsynced = false;
+    }
+
+    /** Gives more events LINGER_MS to arrive before a partial batch is written (under LOCK). */
+    private static void lingerForBatch() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MS);
+        while (count < BATCH && !closed) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return;
+            try {
+                notEmpty.awaitNanos(left);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static void writeBatch(Event[] batch, int n, long time) {
+        if (chain == null) chain = LogChain.resume();
+        byte[]     before = chain;
+        ByteBuffer buf    = encode(batch, n);
+        long       start  = -1; // file size before the batch's first byte
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (channel == null) channel = open();
+                long now = System.currentTimeMillis();
+                if (buf.position() == 0 && rotationDue(now)) { // never between the halves of a batch
+                    closeChannel();
+                    LogSegments.rotate();
+                    channel = open();
+                }
+                int from = buf.position();
+                if (from == 0) start = size;
+                while (buf.hasRemaining()) channel.write(buf);
+                size += buf.limit() - from;
+                if (firstTime == 0) firstTime = time;
+                for (int i = 0; i < n; i++) {
+                    if (batch[i].action != null)
+                        HistoryIndex.record(nextLine, batch[i].action, batch[i].details);
+                    nextLine++;
+                }
+                if (SYNC == Sync.BATCH
+                        || (SYNC == Sync.INTERVAL && now - lastSync >= SYNC_INTERVAL_MS)) {
+                    channel.force(false);
+                    lastSync = now;
+                    unsynced = false;
+                } else if (SYNC == Sync.INTERVAL) {
+                    unsynced = true;
+                }
+                Arrays.fill(batch, 0, n, null);
+                return;
+            } catch (IOException e) {
+                System.err.println("[LogAppender] Could not write log: " + e.getMessage());
+                closeChannel();
+                if (closed || attempt >= 2) {
+                    System.err.println("[LogAppender] Dropped " + n + " log lines");
+                    if (buf.position() > 0) truncate(start);
+                    chain = before; // the next line chains on from the last one on disk
+                    Arrays.fill(batch, 0, n, null);
+                    return;
+                }
+                // resume after the bytes already written rather than append them twice
+                sleep(1000L << attempt);
+            }
+        }
+    }
+
+    private static ByteBuffer encode(Event[] batch, int n) {
+        line.setLength(0);
+        for (int i = 0; i < n; i++) chain = appendLine(line, batch[i], stamp(batch[i].time), chain);
+        return ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Formats one event into sb and ends it with its chain digest, chained on
+     * from prev, and a line break. Returns that digest.
+     */
+    private static byte[] appendLine(StringBuilder sb, Event e, String stamp, byte[] prev) {
+        int start = sb.length();
+        format(sb, e, stamp);
+        byte[] digest = LogChain.next(prev, sb.substring(start));
+        LogChain.appendSuffix(sb, digest);
+        sb.append(System.lineSeparator());
+        return digest;
+    }
+
+    /**
+     * [timestamp] [ACTION              ] user=<user           > | details
+     * Line breaks inside an event become spaces: one event, one line.
+     */
+    private static void format(StringBuilder sb, Event e, String stamp) {
+        if (e.action == null) {
+            appendOneLine(sb, e.details);
+            return;
+        }
+        sb.append('[').append(stamp).append("] [");
+        pad(sb, e.action, 20);
+        sb.append("] user=");
+        pad(sb, e.user, 15);
+        sb.append(" | ");
+        appendOneLine(sb, e.details);
+    }
+
+    private static void appendOneLine(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            sb.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    private static void pad(StringBuilder sb, String s, int width) {
+        sb.append(s);
+        for (int i = s.length(); i < width; i++) sb.append(' ');
+    }
+
+    /** Formatted once per second, not once per line (appender thread only). */
+    private static String stamp(long millis) {
+        long second = Math.floorDiv(millis, 1000);
+        if (second != lastSecond) {
+            lastSecond = second;
+            lastStamp  = formatStamp(millis);
+        }
+        return lastStamp;
+    }
+
+    private static String formatStamp(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(LOG_TS);
+    }
+
+    /** Rotate once the file holds ROTATE_BYTES or its first line is ROTATE_AGE_MS old. */
+    private static boolean rotationDue(long now) {
+        return size >= LogSegments.ROTATE_BYTES
+                || (firstTime != 0 && now - firstTime >= LogSegments.ROTATE_AGE_MS);
+    }
+
+    private static FileChannel open() throws IOException {
+        Files.createDirectories(LogSegments.ACTIVE.getParent());
+        FileChannel ch = FileChannel.open(LogSegments.ACTIVE, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (!recovered) {
+            recovered = true;
+            nextLine  = LogSegments.linesBefore() + countLines(ch);
+            HistoryIndex.start(nextLine);
+            LogSegments.archiveLater(); // rotated files a previous run did not finish
+        }
+        size      = ch.size();
+        firstTime = size == 0 ? 0 : LogSegments.firstTime(LogSegments.ACTIVE);
+        return ch;
+    }
+
+    /**
+     * Lines in the open file. A last line cut short by a crash is ended
+     * first, so it stays one line of its own.
+     */
+    private static long countLines(FileChannel ch) throws IOException {
+        ByteBuffer buf   = ByteBuffer.allocate(1 << 16);
+        long       lines = 0;
+        byte       last  = '\n';
+        try (FileChannel in = FileChannel.open(LogSegments.ACTIVE, StandardOpenOption.READ)) {
+            for (long at = 0; in.read(buf, at) > 0; at += buf.position(), buf.clear()) {
+                for (int i = 0; i < buf.position(); i++) if (buf.get(i) == '\n') lines++;
+                last = buf.get(buf.position() - 1);
+            }
+        }
+        if (last != '\n') {
+            ByteBuffer end = ByteBuffer.wrap(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+            while (end.hasRemaining()) ch.write(end);
+            lines++;
+        }
+        return lines;
+    }
+
+    /** Cuts off the part of a dropped batch that did reach the file, so line ordinals stay in step. */
+    private static void truncate(long length) {
+        try (FileChannel ch = FileChannel.open(LogSegments.ACTIVE, StandardOpenOption.WRITE)) {
+            ch.truncate(length);
+            size = length;
+        } catch (IOException e) {
+            System.err.println("[LogAppender] Could not remove a partly written batch: " + e.getMessage());
+        }
+    }
+
+    private static void closeChannel() {
+        if (channel == null) return;
+        try {
+            if (SYNC != Sync.NEVER) channel.force(false);
+            unsynced = false;
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[LogAppender] Could not close log: " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    /**
+     * An event logged during shutdown, after close(): written directly once
+     * the appender thread has drained, so it still lands after earlier lines.
+     * If the thread is still running after the wait, its builder, stamp and
+     * chain stay its own: the line is built apart and chained on from the
+     * last line on disk (LogChain.resume).
+     */
+    private static synchronized void writeAfterClose(Event e) {
+        Thread t = thread;
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        boolean       alone  = t == null || !t.isAlive();
+        StringBuilder sb     = new StringBuilder(256);
+        byte[]        digest = appendLine(sb, e, formatStamp(e.time),
+                alone && chain != null ? chain : LogChain.resume());
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel ch = FileChannel.open(LogSegments.ACTIVE, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            if (alone) chain = digest;
+        } catch (IOException ex) {
+            System.err.println("[LogAppender] Could not write log: " + ex.getMessage());
+        }
+    }
+
+    private static Sync parseSync(String s) {
+        if (s == null) return Sync.INTERVAL;
+        try {
+            return Sync.valueOf(s.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("[LogAppender] Unknown fsync policy \"" + s + "\", using interval");
+            return Sync.INTERVAL;
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
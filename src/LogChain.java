@@ -0,0 +1,268 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hash chain over the audit log, so an edited, inserted or deleted line is
+ * detected.
+ *
+ * LogAppender ends every line with a tab and the hex of its chain digest:
+ *   digest(n) = SHA-256(digest(n - 1) | UTF-8 text of line n), first DIGEST bytes
+ * starting from ZERO. Lines logged before the chain existed carry none and
+ * are accepted only before the first chained line.
+ *
+ * Each segment's entry in segments.idx keeps the digest of its last chained
+ * line (its anchor). Segment n is checked against the anchor of segment n - 1
+ * alone, so verify() checks all the segments at once, one per core, and then
+ * the rotated files and .log.txt after the last anchor. Changing a line means
+ * rewriting the digest of every line after it and every later anchor too.
+ * The chain has no secret key, so it shows accidental or careless edits, not
+ * a forger who rewrites the whole log. Lines cut off the end of .log.txt
+ * before rotation leave no gap to find.
+ */
+public class LogChain {
+
+    static final int    DIGEST = 16;
+    static final byte[] ZERO   = new byte[DIGEST];
+
+    private static final int    MAX_PROBLEMS = 100;
+    private static final char[] HEX          = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> SHA = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final ExecutorService VERIFY = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()), r -> {
+                Thread t = new Thread(r, "SFADSMS-log-verify");
+                t.setDaemon(true);
+                return t;
+            });
+
+    // ── Lines ─────────────────────────────────────────────────────────────────
+
+    /** The digest chained after {@code prev} by a line with this text. */
+    static byte[] next(byte[] prev, String text) {
+        MessageDigest sha = SHA.get();
+        sha.update(prev);
+        sha.update(text.getBytes(StandardCharsets.UTF_8));
+        return Arrays.copyOf(sha.digest(), DIGEST);
+    }
+
+    /** Appends the tab and hex digest that end a chained line. */
+    static void appendSuffix(StringBuilder sb, byte[] digest) {
+        sb.append('\t');
+        for (byte b : digest) sb.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    /** A line's chain digest, or null if it has none. */
+    static byte[] digestOf(String line) {
+        int at = line.length() - 2 * DIGEST;
+        if (at < 1 || line.charAt(at - 1) != '\t') return null;
+        byte[] out = new byte[DIGEST];
+        for (int i = 0; i < DIGEST; i++) {
+            int hi = Character.digit(line.charAt(at + 2 * i), 16);
+            int lo = Character.digit(line.charAt(at + 2 * i + 1), 16);
+            if (hi < 0 || lo < 0) return null;
+            out[i] = (byte) (hi << 4 | lo);
+        }
+        return out;
+    }
+
+    /** A line without its chain digest. */
+    static String text(String line) {
+        return digestOf(line) == null ? line : line.substring(0, line.length() - 2 * DIGEST - 1);
+    }
+
+    /**
+     * Digest of the last chained line logged, to go on from after a restart:
+     * from the end of .log.txt, else the newest rotated file, else the last
+     * segment's anchor; ZERO if nothing is chained yet.
+     */
+    static byte[] resume() {
+        byte[] d = lastDigest(LogSegments.ACTIVE.toFile());
+        if (d != null) return d;
+        List<File> pending = LogSegments.pending();
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            d = lastDigest(pending.get(i));
+            if (d != null) return d;
+        }
+        return anchorBefore(LogSegments.list(), Integer.MAX_VALUE);
+    }
+
+    /** Digest of the last chained line within the final 64 KB of a file, or null. */
+    private static byte[] lastDigest(File f) {
+        if (!f.exists()) return null;
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            long   len  = raf.length();
+            byte[] tail = new byte[(int) Math.min(len, 1 << 16)];
+            raf.seek(len - tail.length);
+            raf.readFully(tail);
+            String[] lines = new String(tail, StandardCharsets.UTF_8).split("\r?\n");
+            for (int i = lines.length - 1; i >= 0; i--) {
+                byte[] d = digestOf(lines[i]);
+                if (d != null) return d;
+            }
+        } catch (IOException e) {
+            System.err.println("[LogChain] Could not read " + f.getName() + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /** Digest the chain stands at after segments[0, n): the nearest anchor before n. */
+    private static byte[] anchorBefore(List<LogSegments.Segment> segments, int n) {
+        for (int i = Math.min(n, segments.size()) - 1; i >= 0; i--)
+            if (segments.get(i).anchor != null) return segments.get(i).anchor;
+        return ZERO;
+    }
+
+    // ── Verification ──────────────────────────────────────────────────────────
+
+    /** Outcome of verify(): lines checked and what was wrong, first MAX_PROBLEMS only. */
+    static final class Report {
+        final long         lines;
+        final int          segments;
+        final List<String> problems;
+        final int          problemCount;
+
+        Report(long lines, int segments, List<String> problems, int problemCount) {
+            this.lines        = lines;
+            this.segments     = segments;
+            this.problems     = problems;
+            this.problemCount = problemCount;
+        }
+
+        boolean intact() {
+            return problemCount == 0;
+        }
+    }
+
+    /** Walks one run of lines along the chain, noting where it breaks. */
+    private static final class Check {
+        private final List<String>  problems;
+        private final AtomicInteger problemCount;
+        byte[]                      digest;
+        long                        lines;
+
+        Check(byte[] start, List<String> problems, AtomicInteger problemCount) {
+            this.digest       = start;
+            this.problems     = problems;
+            this.problemCount = problemCount;
+        }
+
+        void line(long ordinal, String line) {
+            lines++;
+            byte[] recorded = digestOf(line);
+            if (recorded == null) {
+                if (!Arrays.equals(digest, ZERO)) problem("line " + (ordinal + 1) + " is not chained");
+                return;
+            }
+            if (!Arrays.equals(recorded, next(digest, text(line))))
+                problem("line " + (ordinal + 1) + " does not match the chain");
+            digest = recorded; // one report per changed line, not for all the lines after it
+        }
+
+        void problem(String what) {
+            if (problemCount.getAndIncrement() < MAX_PROBLEMS) {
+                synchronized (problems) {
+                    problems.add(what);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the whole log: every segment in parallel against the anchor
+     * before it, then what follows the last segment. Runs on the calling
+     * thread plus VERIFY. Only the lines complete when it starts are checked,
+     * so one LogAppender is still writing is not taken for a broken one.
+     */
+    static Report verify() throws IOException {
+        long                      end          = LogSegments.lines();
+        List<LogSegments.Segment> segments     = LogSegments.list();
+        List<String>              problems     = new ArrayList<>();
+        AtomicInteger             problemCount = new AtomicInteger();
+
+        List<Future<Long>> parts = new ArrayList<>();
+        long               first = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            LogSegments.Segment s     = segments.get(i);
+            byte[]              start = anchorBefore(segments, i);
+            long                from  = first;
+            parts.add(VERIFY.submit(() -> verifySegment(s, from, start, problems, problemCount)));
+            first += s.lines;
+        }
+
+        // after the segments: rest of the rotated files, then .log.txt
+        Check rest = new Check(anchorBefore(segments, segments.size()), problems, problemCount);
+        LogSegments.scan(first, end, (ordinal, line) -> {
+            rest.line(ordinal, line);
+            return true;
+        });
+
+        long lines = rest.lines;
+        try {
+            for (Future<Long> f : parts) lines += f.get();
+        } catch (InterruptedException e) {
+            for (Future<Long> f : parts) f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Verification interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause);
+        }
+        synchronized (problems) {
+            Collections.sort(problems, (a, b) -> Long.compare(lineOf(a), lineOf(b)));
+            return new Report(lines, segments.size(), new ArrayList<>(problems), problemCount.get());
+        }
+    }
+
+    private static long verifySegment(LogSegments.Segment s, long first, byte[] start,
+                                      List<String> problems, AtomicInteger problemCount) {
+        Check check = new Check(start, problems, problemCount);
+        try (BufferedReader in = LogSegments.open(s)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                check.line(first + check.lines, line);
+                if (Thread.currentThread().isInterrupted()) return check.lines;
+            }
+        } catch (IOException e) {
+            check.problem("segment " + s.name + " is unreadable: " + e.getMessage());
+            return check.lines;
+        }
+        if (check.lines != s.lines)
+            check.problem("segment " + s.name + " holds " + check.lines + " lines, its index says " + s.lines);
+        if (s.anchor != null && !Arrays.equals(check.digest, s.anchor))
+            check.problem("segment " + s.name + " does not end at its anchor");
+        return check.lines;
+    }
+
+    /** Line number a problem is about, for ordering; segment-level problems go last. */
+    private static long lineOf(String problem) {
+        if (!problem.startsWith("line ")) return Long.MAX_VALUE;
+        int end = problem.indexOf(' ', 5);
+        try {
+            return Long.parseLong(problem.substring(5, end));
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Newest-first queries over the whole audit log: .log.txt, rotated files not
+ * archived yet, then the gzip segments (LogSegments), each read backwards.
+ *
+ * Text files are read a WINDOW at a time from the tail, with positional
+ * reads into one reused buffer (no mapping, which on Windows would hold the
+ * file against rotation's rename until GC), and lines are cut out of the
+ * window by scanning back for '\n', so nothing before the page's oldest
+ * line is decoded. A segment is skipped outright when its index entry cannot
+ * match (Segment.mayMatch); one that may is decompressed once and its
+ * matching lines kept for the following pages.
+ *
+ * The log is in time order, so a scan ends at the first line older than the
+ * filter's lower bound instead of running on to the start of the log.
+ *
+ * A Cursor holds no file or byte offset, only the ordinal of the line to go
+ * on from (LogSegments.scan numbering), which stays the same when .log.txt
+ * is rotated or a rotated file is archived. Each page reads one
+ * LogSegments.Snapshot and finds the ordinal in it; that costs a count of
+ * the line breaks in the text files (at most a few rotations' worth), not a
+ * read of the segments. start() stands for whatever line is newest when its
+ * page is read; every later cursor keeps its place, so rows appended after
+ * the first page are seen by the next query.
+ */
+public class LogReader {
+
+    private static final int WINDOW = 1 << 20;
+
+    private static final DateTimeFormatter LOG_TS =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** What to show; null / 0 fields match anything. Times are epoch ms, inclusive. */
+    static final class Filter {
+        final String action, user, category, text;
+        final long   from, to;
+        private final String fromStamp, toStamp, folded;
+
+        Filter(String action, String user, String category, long from, long to, String text) {
+            this.action    = blankToNull(action);
+            this.user      = blankToNull(user);
+            this.category  = blankToNull(category);
+            this.text      = blankToNull(text);
+            this.from      = from;
+            this.to        = to;
+            this.fromStamp = from == 0 ? null : stamp(from);
+            this.toStamp   = to == 0 ? null : stamp(to);
+            this.folded    = this.text == null ? null : this.text.toLowerCase();
+        }
+
+        /** p = LogSegments.parse(line) */
+        boolean matches(String line, String[] p) {
+            if (fromStamp != null || toStamp != null) {
+                if (p[0] == null) return false;
+                if (fromStamp != null && p[0].compareTo(fromStamp) < 0) return false;
+                if (toStamp != null && p[0].compareTo(toStamp) > 0) return false;
+            }
+            if (action != null && !action.equalsIgnoreCase(p[1])) return false;
+            if (user != null && !user.equalsIgnoreCase(p[2])) return false;
+            if (category != null) {
+                if (p[0] == null || !p[3].contains(category)) return false;
+                Set<String> cats = new HashSet<>();
+                LogSegments.categoriesOf(p[1], p[3], cats);
+                if (!cats.contains(category)) return false;
+            }
+            return folded == null || LogChain.text(line).toLowerCase().contains(folded);
+        }
+
+        /** True for a stamped line older than the lower bound: nothing before it can match. */
+        boolean before(String[] p) {
+            return fromStamp != null && p[0] != null && p[0].compareTo(fromStamp) < 0;
+        }
+
+        boolean skips(LogSegments.Segment s) {
+            return !s.mayMatch(from, to, action == null ? null : action.toUpperCase(), category);
+        }
+
+        /** Segment older than the lower bound. */
+        boolean before(LogSegments.Segment s) {
+            return from != 0 && s.last != 0 && s.last < from;
+        }
+
+        private static String stamp(long millis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(LOG_TS);
+        }
+
+        private static String blankToNull(String s) {
+            return s == null || s.trim().isEmpty() ? null : s.trim();
+        }
+    }
+
+    /** Position of the next line to read: lines numbered below {@code before} are still unread. */
+    static final class Cursor {
+        private final Filter filter;
+        private final long   before; // a LogSegments.scan ordinal
+
+        private Cursor(Filter filter, long before) {
+            this.filter = filter;
+            this.before = before;
+        }
+    }
+
+    /** Matching lines, newest first, and where the next page starts (null at the start of the log). */
+    static final class Page {
+        final List<String[]> rows; // LogSegments.parse(line)
+        final Cursor         next;
+
+        Page(List<String[]> rows, Cursor next) {
+            this.rows = rows;
+            this.next = next;
+        }
+    }
+
+    /** Cursor at the newest line of the log as it is when the first page is read. */
+    static Cursor start(Filter filter) {
+        return new Cursor(filter, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads up to {@code limit} matching lines from the cursor on. Stops
+     * early, with a cursor to resume from, if the thread is interrupted.
+     */
+    static Page read(Cursor at, int limit) throws IOException {
+        try (LogSegments.Snapshot log = LogSegments.snapshot()) {
+            return read(log, at, limit);
+        }
+    }
+
+    private static Page read(LogSegments.Snapshot log, Cursor at, int limit) throws IOException {
+        // First ordinal of every source: the segments, then the text files
+        int    segCount = log.segments.size();
+        long[] segFirst = new long[segCount];
+        long   first    = 0;
+        for (int i = 0; i < segCount; i++) {
+            segFirst[i] = first;
+            first += log.segments.get(i).lines;
+        }
+        Text[] texts = new Text[log.texts.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = new Text(log.texts.get(i), log.skip.get(i), first);
+            first += texts[i].lines;
+        }
+
+        List<String[]> rows   = new ArrayList<>();
+        Filter         f      = at.filter;
+        long           before = Math.min(at.before, first);
+        for (int i = texts.length - 1; i >= 0; i--) {
+            Text t = texts[i];
+            if (before <= t.first) continue;
+            Tail tail = new Tail(t.channel, t.floor, t.end);
+            for (long n = t.first + t.lines; n > before; n--) tail.back(); // the lines after the cursor
+            String line;
+            while ((line = tail.previous()) != null) {
+                before--;
+                String[] parsed = LogSegments.parse(line);
+                if (f.matches(line, parsed)) rows.add(parsed);
+                else if (f.before(parsed)) return new Page(rows, null);
+                if (rows.size() >= limit || Thread.currentThread().isInterrupted()) return page(rows, f, before);
+            }
+            before = t.first;
+        }
+        for (int i = segCount - 1; i >= 0; i--) {
+            LogSegments.Segment s = log.segments.get(i);
+            if (before <= segFirst[i]) continue;
+            if (f.before(s)) return new Page(rows, null);
+            if (!f.skips(s)) {
+                Hits hits = segmentHits(s, f);
+                for (int h = hits.below(before - segFirst[i]) - 1; h >= 0; h--) {
+                    rows.add(LogSegments.parse(hits.lines.get(h)));
+                    if (rows.size() >= limit) return page(rows, f, segFirst[i] + hits.at[h]);
+                }
+            }
+            before = segFirst[i];
+            if (Thread.currentThread().isInterrupted()) return page(rows, f, before);
+        }
+        return new Page(rows, null);
+    }
+
+    private static Page page(List<String[]> rows, Filter f, long before) {
+        return new Page(rows, before > 0 ? new Cursor(f, before) : null);
+    }
+
+    // ── Segments ──────────────────────────────────────────────────────────────
+
+    /** Matching lines of one segment, oldest first, with their line numbers in it. */
+    private static final class Hits {
+        final List<String> lines = new ArrayList<>();
+        int[]              at    = new int[16];
+
+        void add(int lineNo, String line) {
+            if (lines.size() == at.length) at = Arrays.copyOf(at, at.length * 2);
+            at[lines.size()] = lineNo;
+            lines.add(line);
+        }
+
+        /** How many hits lie before line n. */
+        int below(long n) {
+            int i = Arrays.binarySearch(at, 0, lines.size(), (int) Math.min(n, Integer.MAX_VALUE));
+            return i >= 0 ? i : -i - 1;
+        }
+    }
+
+    // Matching lines of the last segment read — paging through it reads it once
+    private static LogSegments.Segment hitsOf     = null;
+    private static Filter              hitsFilter = null;
+    private static Hits                hits       = null;
+
+    private static synchronized Hits segmentHits(LogSegments.Segment s, Filter f) throws IOException {
+        if (s == hitsOf && f == hitsFilter) return hits;
+        Hits out = new Hits();
+        try (BufferedReader in = LogSegments.open(s)) {
+            String line;
+            for (int n = 0; (line = in.readLine()) != null; n++)
+                if (f.matches(line, LogSegments.parse(line))) out.add(n, line);
+        }
+        hitsOf     = s;
+        hitsFilter = f;
+        hits       = out;
+        return out;
+    }
+
+    // ── Text files ────────────────────────────────────────────────────────────
+
+    /** A rotated file or ACTIVE in a snapshot: its complete lines not yet in segments. */
+    private static final class Text {
+        final FileChannel channel;
+        final long        first; // ordinal of its first line
+        final long        floor; // byte offset of that line
+        final long        end;   // byte offset after its last line break
+        final long        lines;
+
+        /** Counts the lines, past the first {@code skip} (already archived). */
+        Text(FileChannel channel, long skip, long first) throws IOException {
+            ByteBuffer buf   = ByteBuffer.allocate(1 << 16);
+            long       size  = channel.size();
+            long       seen  = 0, last = 0, floor = 0;
+            for (long at = 0; at < size; ) {
+                buf.clear();
+                int n = channel.read(buf, at);
+                if (n < 0) break;
+                for (int i = 0; i < n; i++) {
+                    if (buf.get(i) != '\n') continue;
+                    last = at + i + 1;
+                    if (++seen == skip) floor = last;
+                }
+                at += n;
+            }
+            this.channel = channel;
+            this.first   = first;
+            this.floor   = seen < skip ? last : floor;
+            this.end     = last;
+            this.lines   = Math.max(0, seen - skip);
+        }
+    }
+
+    /** Reads a text file backwards, line by line, from byte pos down to floor through WINDOW-sized reads. */
+    private static final class Tail {
+        private final FileChannel channel;
+        private final long        floor;
+        private final byte[]      window = new byte[WINDOW];
+        private int               length = 0; // bytes of window holding file data
+        private long              base;       // file offset of window[0]
+        private long              start, end; // the line last stepped over
+        long                      pos;        // lines before this offset are still unread
+
+        Tail(FileChannel channel, long floor, long pos) {
+            this.channel = channel;
+            this.floor   = floor;
+            this.pos     = pos;
+        }
+
+        /** The line ending just before pos, without its line break; null at the floor. */
+        String previous() throws IOException {
+            return back() ? decode(start, end) : null;
+        }
+
+        /** Steps pos back over one line without decoding it; false at the floor. */
+        boolean back() throws IOException {
+            if (pos <= floor) return false;
+            end = pos;
+            if (byteAt(end - 1) == '\n') end--;
+            if (end > floor && byteAt(end - 1) == '\r') end--;
+            start = end;
+            while (start > floor && byteAt(start - 1) != '\n') start--;
+            pos = start;
+            return true;
+        }
+
+        private byte byteAt(long at) throws IOException {
+            if (at < base || at >= base + length) {
+                long from = Math.max(0, at + 1 - WINDOW);
+                length = read(ByteBuffer.wrap(window, 0, (int) (at + 1 - from)), from);
+                base   = from;
+            }
+            return window[(int) (at - base)];
+        }
+
+        private String decode(long start, long end) throws IOException {
+            int len = (int) (end - start);
+            if (len == 0) return "";
+            if (start >= base && end <= base + length)
+                return new String(window, (int) (start - base), len, StandardCharsets.UTF_8);
+            byte[] line = new byte[len]; // longer than the window, or across two windows
+            read(ByteBuffer.wrap(line), start);
+            return new String(line, StandardCharsets.UTF_8);
+        }
+
+        /** Fills buf from file offset at on; returns the bytes read. */
+        private int read(ByteBuffer buf, long at) throws IOException {
+            while (buf.hasRemaining()) {
+                int n = channel.read(buf, at + buf.position());
+                if (n < 0) throw new IOException("Log file shrank while being read");
+            }
+            return buf.position();
+        }
+    }
+}
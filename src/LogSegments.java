@@ -0,0 +1,715 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rotated audit log segments: ~/.SFADSMS/.log/segments/
+ *
+ * LogAppender writes into .log/.log.txt and rotates it once it holds
+ * ROTATE_BYTES or its first line is ROTATE_AGE_MS old: the file is renamed to
+ * .log/rotated-<millis>.txt (instant) and handed to the "SFADSMS-log-archive"
+ * thread, which gzips it into a log-NNNNNN.gz segment and then deletes it.
+ * A file much larger than ROTATE_BYTES — the legacy log of several years,
+ * the first time it is seen — is cut into segments of about ROTATE_BYTES
+ * uncompressed each.
+ *
+ * segments.idx describes every segment without opening it:
+ *   "SFLS" | version | count
+ *   count × (name, source, upTo, first, last, lines, bytes, anchor,
+ *            actionCount × action, categoryCount × category)
+ * first/last are the epoch ms of its first and last stamped line, so a query
+ * can skip any segment whose time range, actions or categories cannot match
+ * (Segment.mayMatch). source/upTo record which rotated file a segment came
+ * from and how many of its lines it covers, so an archive interrupted half
+ * way resumes after the last finished segment instead of duplicating lines.
+ * anchor is the chain digest of the segment's last chained line (LogChain).
+ * The index is only a summary of the .gz files: a missing or unreadable one
+ * is rebuilt by reading them.
+ *
+ * Oldest to newest, the log is: list() segments, then pending() rotated
+ * files, then ACTIVE. scan() reads it as one numbered sequence of lines —
+ * the ordinals HistoryIndex points at.
+ */
+public class LogSegments {
+
+    private static final Path LOG_DIR = Paths.get(System.getProperty("user.home"),
+            ".SFADSMS", ".log");
+    static final Path         ACTIVE  = LOG_DIR.resolve(".log.txt");
+    private static final Path SEG_DIR = LOG_DIR.resolve("segments");
+    private static final File INDEX   = SEG_DIR.resolve("segments.idx").toFile();
+
+    static final long ROTATE_BYTES  = Long.getLong("sfadsms.log.rotateMB", 8) << 20;
+    static final long ROTATE_AGE_MS = TimeUnit.DAYS.toMillis(Long.getLong("sfadsms.log.rotateDays", 30));
+
+    private static final int MAGIC   = 0x53464C53; // "SFLS"
+    private static final int VERSION = 2; // 2: anchor
+
+    private static final DateTimeFormatter LOG_TS =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** One compressed segment and what it holds. */
+    static final class Segment {
+        final String      name;       // file in segments/
+        final String      source;     // rotated file it was cut from ("" if unknown)
+        final long        upTo;       // lines of source consumed once this segment was written
+        final long        first;      // epoch ms of the first stamped line, 0 if none
+        final long        last;       // epoch ms of the last stamped line, 0 if none
+        final long        lines;
+        final long        bytes;      // uncompressed (chars + line ends)
+        final byte[]      anchor;     // chain digest of the last chained line, null if none
+        final Set<String> actions;
+        final Set<String> categories;
+
+        Segment(String name, String source, long upTo, long first, long last, long lines,
+                long bytes, byte[] anchor, Set<String> actions, Set<String> categories) {
+            this.name       = name;
+            this.source     = source;
+            this.upTo       = upTo;
+            this.first      = first;
+            this.last       = last;
+            this.lines      = lines;
+            this.bytes      = bytes;
+            this.anchor     = anchor;
+            this.actions    = actions;
+            this.categories = categories;
+        }
+
+        File file() {
+            return SEG_DIR.resolve(name).toFile();
+        }
+
+        /**
+         * False only if no line in the segment can match: stamped outside
+         * [from, to] (0 = open bound), or without the action / category
+         * (null = any).
+         */
+        boolean mayMatch(long from, long to, String action, String category) {
+            if (first != 0 && from != 0 && last < from) return false;
+            if (first != 0 && to != 0 && first > to) return false;
+            if (action != null && !actions.contains(action)) return false;
+            return category == null || categories.contains(category);
+        }
+    }
+
+    private static final ExecutorService ARCHIVER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SFADSMS-log-archive");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Guarded by the class lock; oldest first
+    private static final List<Segment> segments = new ArrayList<>();
+    private static boolean             loaded   = false;
+
+    // ── Rotation ──────────────────────────────────────────────────────────────
+
+    /**
+     * Moves ACTIVE aside for archiving (called by LogAppender with its
+     * channel closed) and starts the archive in the background.
+     */
+    static void rotate() {
+        synchronized (LogSegments.class) {
+            moveActive();
+        }
+        archiveLater();
+    }
+
+    private static void moveActive() {
+        try {
+            if (Files.exists(ACTIVE)) {
+                Path target;
+                long stamp = System.currentTimeMillis();
+                do {
+                    target = LOG_DIR.resolve("rotated-" + (stamp++) + ".txt");
+                } while (Files.exists(target));
+                move(ACTIVE, target);
+            }
+        } catch (IOException e) {
+            System.err.println("[LogSegments] Could not rotate log: " + e.getMessage());
+        }
+    }
+
+    /** Archives any rotated files left over (e.g. by a crash) in the background. */
+    static void archiveLater() {
+        ARCHIVER.execute(LogSegments::archivePending);
+    }
+
+    /** Rotated files not archived yet, oldest first. */
+    static List<File> pending() {
+        File[] files = LOG_DIR.toFile().listFiles((d, n) -> n.startsWith("rotated-") && n.endsWith(".txt"));
+        if (files == null) return new ArrayList<>();
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private static void archivePending() {
+        ensureLoaded();
+        for (File f : pending()) {
+            try {
+                archive(f);
+                synchronized (LogSegments.class) {
+                    Files.deleteIfExists(f.toPath());
+                }
+            } catch (IOException e) {
+                System.err.println("[LogSegments] Could not archive " + f.getName() + ": " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /** Cuts one rotated file into segments, resuming after those already written from it. */
+    private static void archive(File source) throws IOException {
+        long done;
+        synchronized (LogSegments.class) {
+            done = covered().getOrDefault(source.getName(), 0L);
+        }
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(source), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            long   read = 0;
+            while (read < done && in.readLine() != null) read++;
+
+            // a normal rotation (just past the limit) stays whole; only a larger file is cut up
+            boolean split = source.length() > 2 * ROTATE_BYTES;
+            Cut     cut   = null;
+            while ((line = in.readLine()) != null) {
+                read++;
+                if (cut == null) cut = new Cut(nextName());
+                cut.add(line);
+                if (split && cut.stats.bytes >= ROTATE_BYTES) {
+                    finish(cut, source.getName(), read);
+                    cut = null;
+                }
+            }
+            if (cut != null) finish(cut, source.getName(), read);
+        }
+    }
+
+    /** A segment being written: gzip stream into <name>.tmp plus its stats. */
+    private static final class Cut {
+        final String         name;
+        final File           tmp;
+        final BufferedWriter out;
+        final Stats          stats = new Stats();
+
+        Cut(String name) throws IOException {
+            Files.createDirectories(SEG_DIR);
+            this.name = name;
+            this.tmp  = SEG_DIR.resolve(name + ".tmp").toFile();
+            this.out  = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(tmp), 1 << 16), StandardCharsets.UTF_8));
+        }
+
+        void add(String line) throws IOException {
+            out.write(line);
+            out.newLine();
+            stats.add(line);
+        }
+    }
+
+    /**
+     * Indexes the finished segment first, then publishes its file under the
+     * indexed name — both under the class lock, like the rename in rotate()
+     * and the delete of a finished rotated file, so a scan() snapshot never
+     * sees a line twice or not at all.
+     */
+    private static void finish(Cut cut, String source, long upTo) throws IOException {
+        cut.out.close();
+        Segment s = cut.stats.toSegment(cut.name, source, upTo);
+        synchronized (LogSegments.class) {
+            segments.add(s);
+            save();
+            move(cut.tmp.toPath(), s.file().toPath());
+        }
+    }
+
+    private static synchronized String nextName() {
+        int max = 0;
+        for (Segment s : segments) max = Math.max(max, sequenceOf(s.name));
+        String[] names = SEG_DIR.toFile().list();
+        if (names != null) for (String n : names) max = Math.max(max, sequenceOf(n));
+        return String.format("log-%06d.gz", max + 1);
+    }
+
+    private static int sequenceOf(String name) {
+        if (!name.startsWith("log-") || name.length() < 10) return 0;
+        try {
+            return Integer.parseInt(name.substring(4, 10));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // ── Queries ───────────────────────────────────────────────────────────────
+
+    /** Every archived segment, oldest first. */
+    static synchronized List<Segment> list() {
+        ensureLoaded();
+        return new ArrayList<>(segments);
+    }
+
+    /** Reads a segment's lines. */
+    static BufferedReader open(Segment s) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(s.file()), 1 << 16), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Splits a log line into {stamp|null, action|null, user|null, details},
+     * without its chain digest.
+     * Structured lines are "[stamp] [ACTION  ] user=<user  > | details";
+     * raw writeLog lines like "[OPERATION] text" only yield an action.
+     */
+    static String[] parse(String line) {
+        String stamp = null, action = null, user = null, rest = LogChain.text(line);
+        if (rest.startsWith("[") && rest.length() > 2 && Character.isDigit(rest.charAt(1))) {
+            int end = rest.indexOf(']');
+            if (end > 0) {
+                stamp = rest.substring(1, end);
+                rest  = rest.substring(end + 1).trim();
+            }
+        }
+        if (rest.startsWith("[")) {
+            int end = rest.indexOf(']');
+            if (end > 0) {
+                action = rest.substring(1, end).trim();
+                rest   = rest.substring(end + 1).trim();
+            }
+        }
+        if (stamp != null && rest.startsWith("user=")) {
+            int bar = rest.indexOf(" | ");
+            user = (bar < 0 ? rest.substring(5) : rest.substring(5, bar)).trim();
+            rest = bar < 0 ? "" : rest.substring(bar + 3);
+        }
+        return new String[]{stamp, action, user, rest};
+    }
+
+    /** Epoch ms of a log stamp, or 0 if it is not one. */
+    static long timeOf(String stamp) {
+        if (stamp == null) return 0;
+        try {
+            return LocalDateTime.parse(stamp, LOG_TS).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    /** Adds the categories an event's details name to {@code out}. */
+    static void categoriesOf(String action, String details, Set<String> out) {
+        for (String field : details.split(" \\| ")) {
+            int eq = field.indexOf('=');
+            if (eq < 0) continue;
+            String key = field.substring(0, eq), value = field.substring(eq + 1);
+            switch (key) {
+                case "category":
+                    out.add(value);
+                    break;
+                case "from":
+                case "to":
+                    int slash = value.indexOf('/');
+                    out.add(slash < 0 ? value : value.substring(0, slash));
+                    break;
+                case "old":
+                case "new":
+                    if ("RENAME-CATEGORY".equals(action)) out.add(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /** Epoch ms of the first stamped line of a log file, or 0. */
+    static long firstTime(Path file) {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            for (int i = 0; i < 64 && (line = in.readLine()) != null; i++) {
+                long t = timeOf(parse(line)[0]);
+                if (t != 0) return t;
+            }
+        } catch (IOException e) {
+            // missing or unreadable — nothing to rotate by age
+        }
+        return 0;
+    }
+
+    /** Running summary of the lines going into one segment. */
+    private static final class Stats {
+        long              first, last, lines, bytes;
+        byte[]            anchor;
+        final Set<String> actions    = new TreeSet<>();
+        final Set<String> categories = new TreeSet<>();
+
+        void add(String line) {
+            lines++;
+            bytes += line.length() + 1;
+            byte[] digest = LogChain.digestOf(line);
+            if (digest != null) anchor = digest;
+            String[] p = parse(line);
+            long t = timeOf(p[0]);
+            if (t != 0) {
+                if (first == 0) first = t;
+                last = t;
+            }
+            if (p[1] != null) actions.add(p[1]);
+            if (p[0] != null) categoriesOf(p[1], p[3], categories);
+        }
+
+        Segment toSegment(String name, String source, long upTo) {
+            return new Segment(name, source, upTo, first, last, lines, bytes, anchor, actions, categories);
+        }
+    }
+
+    // ── Lines ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Receives log lines in order with their ordinal: 0 for the first line
+     * ever logged, counted across segments, rotated files and ACTIVE.
+     */
+    interface LineSink {
+        /** Returning false stops the scan. */
+        boolean accept(long ordinal, String line);
+
+        /** False if no line in [first, end) is wanted — a segment that holds only those is not read. */
+        default boolean wants(long first, long end) {
+            return true;
+        }
+    }
+
+    /** Number of lines before ACTIVE: archived segments plus what is left of the rotated files. */
+    static synchronized long linesBefore() throws IOException {
+        ensureLoaded();
+        long n = 0;
+        for (Segment s : segments) n += s.lines;
+        Map<String, Long> covered = covered();
+        for (File f : pending()) {
+            long lines = 0;
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(f), StandardCharsets.UTF_8), 1 << 16)) {
+                while (in.readLine() != null) lines++;
+            }
+            n += Math.max(0, lines - covered.getOrDefault(f.getName(), 0L));
+        }
+        return n;
+    }
+
+    /**
+     * The log's sources as they stood at one moment, oldest first: the
+     * segments, then the rotated files and ACTIVE already opened, so a
+     * rotation or archive that follows does not take their lines away.
+     * skip.get(i) is how many of texts.get(i)'s first lines are in segments.
+     */
+    static final class Snapshot implements Closeable {
+        final List<Segment>     segments;
+        final List<FileChannel> texts = new ArrayList<>();
+        final List<Long>        skip  = new ArrayList<>();
+
+        private Snapshot(List<Segment> segments) {
+            this.segments = segments;
+        }
+
+        @Override
+        public void close() {
+            for (FileChannel c : texts) {
+                try {
+                    c.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    /** Takes a Snapshot of the log; the caller closes it. */
+    static synchronized Snapshot snapshot() throws IOException {
+        ensureLoaded();
+        Snapshot          snap    = new Snapshot(new ArrayList<>(segments));
+        Map<String, Long> covered = covered();
+        try {
+            for (File f : pending()) {
+                snap.texts.add(FileChannel.open(f.toPath(), StandardOpenOption.READ));
+                snap.skip.add(covered.getOrDefault(f.getName(), 0L));
+            }
+            if (Files.exists(ACTIVE)) {
+                snap.texts.add(FileChannel.open(ACTIVE, StandardOpenOption.READ));
+                snap.skip.add(0L);
+            }
+        } catch (IOException e) {
+            snap.close();
+            throw e;
+        }
+        return snap;
+    }
+
+    /**
+     * Number of complete lines in the log right now — a line still being
+     * written, with no line break yet, is not counted.
+     */
+    static long lines() throws IOException {
+        try (Snapshot log = snapshot()) {
+            long n = 0;
+            for (Segment s : log.segments) n += s.lines;
+            for (int i = 0; i < log.texts.size(); i++)
+                n += Math.max(0, lineBreaks(log.texts.get(i)) - log.skip.get(i));
+            return n;
+        }
+    }
+
+    /** Line breaks in the first channel.size() bytes (as of the call) of a file. */
+    private static long lineBreaks(FileChannel c) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        long       n   = 0;
+        for (long at = 0, size = c.size(); at < size; ) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), size - at));
+            int r = c.read(buf, at);
+            if (r < 0) break;
+            for (int i = 0; i < r; i++) if (buf.get(i) == '\n') n++;
+            at += r;
+        }
+        return n;
+    }
+
+    /**
+     * Feeds the lines with ordinals in [from, to) to the sink, oldest first.
+     * The sources are taken from one snapshot; if a rotated file is archived
+     * while it is being read, the scan resumes from the segments it became.
+     */
+    static void scan(long from, long to, LineSink sink) throws IOException {
+        Walk w = new Walk(from);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                scanOnce(w, to, sink);
+                return;
+            } catch (FileNotFoundException | java.nio.file.NoSuchFileException e) {
+                if (attempt >= 3) throw e;
+            }
+        }
+    }
+
+    /** Progress of a scan: the next ordinal to hand over, and whether the sink stopped it. */
+    private static final class Walk {
+        long    next;
+        boolean stopped;
+
+        Walk(long next) {
+            this.next = next;
+        }
+    }
+
+    private static void scanOnce(Walk w, long to, LineSink sink) throws IOException {
+        List<Segment>     segs;
+        List<File>        rotated;
+        Map<String, Long> covered;
+        InputStream       active = null;
+        synchronized (LogSegments.class) {
+            ensureLoaded();
+            segs    = new ArrayList<>(segments);
+            rotated = pending();
+            covered = covered();
+            if (Files.exists(ACTIVE)) active = new FileInputStream(ACTIVE.toFile()); // before any rename
+        }
+        try {
+            long ordinal = 0;
+            for (Segment s : segs) {
+                long end = ordinal + s.lines;
+                if (end > w.next && ordinal < to && sink.wants(Math.max(ordinal, w.next), Math.min(end, to))) {
+                    try (BufferedReader in = open(s)) {
+                        feed(in, ordinal, 0, w, to, sink);
+                    }
+                    if (w.stopped) return;
+                }
+                ordinal = end;
+                if (ordinal >= to) return;
+            }
+            for (File f : rotated) {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                        new FileInputStream(f), StandardCharsets.UTF_8), 1 << 16)) {
+                    ordinal = feed(in, ordinal, covered.getOrDefault(f.getName(), 0L), w, to, sink);
+                }
+                if (w.stopped || ordinal >= to) return;
+            }
+            if (active != null) {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                        active, StandardCharsets.UTF_8), 1 << 16)) {
+                    active = null;
+                    feed(in, ordinal, 0, w, to, sink);
+                }
+            }
+        } finally {
+            if (active != null) active.close();
+        }
+    }
+
+    /** Reads one source (after its first {@code skip} lines), handing over the wanted ordinals. */
+    private static long feed(BufferedReader in, long ordinal, long skip, Walk w, long to,
+                             LineSink sink) throws IOException {
+        for (long i = 0; i < skip; i++) if (in.readLine() == null) return ordinal;
+        String line;
+        while (ordinal < to && (line = in.readLine()) != null) {
+            if (ordinal >= w.next) {
+                w.next = ordinal + 1;
+                if (!sink.accept(ordinal, line)) {
+                    w.stopped = true;
+                    return ordinal + 1;
+                }
+            }
+            ordinal++;
+        }
+        return ordinal;
+    }
+
+    /** Rotated file name → how many of its first lines are already in segments (under the class lock). */
+    private static Map<String, Long> covered() {
+        Map<String, Long> out = new HashMap<>();
+        for (Segment s : segments)
+            if (!s.source.isEmpty()) out.merge(s.source, s.upTo, Math::max);
+        return out;
+    }
+
+    // ── Persistence ───────────────────────────────────────────────────────────
+
+    /** Loads segments.idx once, then squares it with the .gz files actually there. */
+    private static synchronized void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        boolean changed = !load();
+
+        String[] names = SEG_DIR.toFile().list();
+        Set<String> onDisk = new HashSet<>();
+        if (names != null) {
+            for (String n : names) {
+                if (n.endsWith(".tmp")) new File(SEG_DIR.toFile(), n).delete(); // interrupted cut
+                else if (sequenceOf(n) > 0) onDisk.add(n);
+            }
+        }
+        // indexed but never published (interrupted before the rename): cut again from its source
+        changed |= segments.removeIf(s -> !onDisk.contains(s.name));
+        Set<String> indexed = new HashSet<>();
+        for (Segment s : segments) indexed.add(s.name);
+        List<String> orphans = new ArrayList<>();
+        for (String n : onDisk) if (!indexed.contains(n)) orphans.add(n);
+        Collections.sort(orphans);
+        for (String n : orphans) {
+            Segment s = scan(n);
+            if (s != null) {
+                segments.add(s);
+                changed = true;
+            }
+        }
+        segments.sort(Comparator.comparingInt(s -> sequenceOf(s.name)));
+        if (changed) save();
+    }
+
+    /** Summarises a segment with no index entry by reading it. */
+    private static Segment scan(String name) {
+        Stats stats = new Stats();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(SEG_DIR.resolve(name).toFile()), 1 << 16),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) stats.add(line);
+        } catch (IOException e) {
+            System.err.println("[LogSegments] Unreadable segment " + name + ": " + e.getMessage());
+            return null;
+        }
+        return stats.toSegment(name, "", 0);
+    }
+
+    private static boolean load() {
+        segments.clear();
+        if (!INDEX.exists()) return !SEG_DIR.toFile().exists();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(INDEX), 1 << 16))) {
+            if (in.readInt() != MAGIC) return false;
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) return false;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name   = in.readUTF();
+                String source = in.readUTF();
+                long   upTo   = in.readLong();
+                long   first  = in.readLong();
+                long   last   = in.readLong();
+                long   lines  = in.readLong();
+                long   bytes  = in.readLong();
+                byte[] anchor = null; // version 1 predates the chain
+                if (version >= 2) {
+                    int n = in.readUnsignedByte();
+                    if (n > 0) {
+                        anchor = new byte[n];
+                        in.readFully(anchor);
+                    }
+                }
+                segments.add(new Segment(name, source, upTo, first, last, lines, bytes, anchor,
+                        readSet(in), readSet(in)));
+            }
+            return version == VERSION;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[LogSegments] Unusable index, rebuilding: " + e.getMessage());
+            segments.clear();
+            return false;
+        }
+    }
+
+    private static void save() {
+        try {
+            FileHandler.writeAtomicallyData(INDEX, out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(segments.size());
+                for (Segment s : segments) {
+                    out.writeUTF(s.name);
+                    out.writeUTF(s.source);
+                    out.writeLong(s.upTo);
+                    out.writeLong(s.first);
+                    out.writeLong(s.last);
+                    out.writeLong(s.lines);
+                    out.writeLong(s.bytes);
+                    out.writeByte(s.anchor == null ? 0 : s.anchor.length);
+                    if (s.anchor != null) out.write(s.anchor);
+                    writeSet(out, s.actions);
+                    writeSet(out, s.categories);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("[LogSegments] Error writing to disk: " + e.getMessage());
+        }
+    }
+
+    private static Set<String> readSet(DataInputStream in) throws IOException {
+        int         n   = in.readInt();
+        Set<String> out = new TreeSet<>();
+        for (int i = 0; i < n; i++) out.add(in.readUTF());
+        return out;
+    }
+
+    private static void writeSet(DataOutputStream out, Set<String> set) throws IOException {
+        out.writeInt(set.size());
+        for (String s : set) out.writeUTF(s);
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
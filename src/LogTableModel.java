@@ -0,0 +1,49 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table model for one page of the audit log (LogViewer).
+ *
+ * Columns: "Time", "Action", "User", "Details". Rows are LogSegments.parse()
+ * results, newest first; a raw line without a stamp or user shows blanks.
+ */
+class LogTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Time", "Action", "User", "Details"};
+
+    // {stamp|null, action|null, user|null, details}
+    private List<String[]> rows = new ArrayList<>();
+
+    /** Replaces the page shown. */
+    void show(List<String[]> page) {
+        rows = page;
+        fireTableDataChanged();
+    }
+
+    /** The {stamp, action, user, details} row shown in a view row. */
+    String[] rowAt(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int col) {
+        return COLUMNS[col];
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        String v = rows.get(row)[col];
+        return v == null ? "" : v;
+    }
+}
@@ -0,0 +1,343 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-app audit log viewer: "who deleted this file?" without opening .log.txt.
+ *
+ * Filters by action, user, category, time range and free text; shows the
+ * newest PAGE matching lines and pages back through the whole log (rotated
+ * segments included) with Older / Newer. Only the page on screen and the
+ * cursors of the pages before it are held, whatever the size of the log.
+ * Queries run on QUERY (LogReader); a new query interrupts the one running.
+ *
+ * Verify checks the log's hash chain (LogChain) on CHECK, so queries go on
+ * meanwhile.
+ *
+ * The same window shows the history of one record or file (HistoryIndex):
+ * no filters, the lines at the indexed ordinals, newest first, PAGE at a time.
+ */
+class LogViewer extends JDialog {
+
+    private static final int   PAGE         = 500;
+    private static final Color SELECTED_ROW = new Color(117, 119, 255, 60);
+
+    private static final String[] ACTIONS = {"", "UPLOAD", "DELETE-FILE", "DELETE-SUBFOLDER",
+            "DELETE-CATEGORY", "RENAME-FILE", "RENAME-SUBFOLDER", "RENAME-CATEGORY", "MOVE-FILE",
+            "MOVE-SUBFOLDER", "USER-ADDED", "USER-REMOVED", "CREDENTIALS-CHANGED", "OPERATION", "ERROR"};
+
+    private static final DateTimeFormatter DAY    = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MINUTE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final ExecutorService QUERY = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SFADSMS-log-query");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final ExecutorService CHECK = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SFADSMS-log-check");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger querySeq = new AtomicInteger();
+    private Future<?> pendingQuery = null;
+
+    private final LogTableModel model = new LogTableModel();
+    private JComboBox<String> actionBox, categoryBox;
+    private JTextField userField, fromField, toField, textField;
+    private JButton newerBtn, olderBtn, verifyBtn;
+    private JLabel status;
+
+    // History window: ordinals of the lines shown, oldest first; null for a query window
+    private final int[] history;
+    private int         shownPage = 0;
+
+    // Start of every page up to the one shown; the next page's start, null at the start of the log
+    private final List<LogReader.Cursor> pages = new ArrayList<>();
+    private LogReader.Cursor next = null;
+
+    /** Query window, filtered to a category if one is given. */
+    LogViewer(Frame owner, double heightMultiplier, double widthMultiplier, String category) {
+        super(owner, "Activity Log", false);
+        this.history = null;
+        build(heightMultiplier, widthMultiplier);
+        float labelSize = Math.max(14f, (float) (14 * heightMultiplier));
+
+        actionBox = new JComboBox<>(ACTIONS);
+        actionBox.setEditable(true);
+        String[] folders    = Fetcher.getFolderName();
+        String[] categories = new String[folders.length + 1];
+        categories[0] = "";
+        System.arraycopy(folders, 0, categories, 1, folders.length);
+        categoryBox = new JComboBox<>(categories);
+        categoryBox.setEditable(true);
+        if (category != null) categoryBox.setSelectedItem(category);
+        userField = new JTextField(10);
+        fromField = new JTextField(11);
+        toField   = new JTextField(11);
+        textField = new JTextField(14);
+        fromField.setToolTipText("yyyy-MM-dd or yyyy-MM-dd HH:mm");
+        toField.setToolTipText("yyyy-MM-dd or yyyy-MM-dd HH:mm");
+
+        JButton searchBtn = UI.buttonDesign();
+        searchBtn.setText("Search");
+        searchBtn.addActionListener(e -> runQuery());
+        textField.addActionListener(e -> runQuery());
+        getRootPane().setDefaultButton(searchBtn);
+        verifyBtn = UI.buttonDesign();
+        verifyBtn.setText("Verify");
+        verifyBtn.setToolTipText("Check that no line of the log has been changed or removed");
+        verifyBtn.addActionListener(e -> verify());
+
+        JPanel filters = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 8));
+        filters.setBackground(Color.WHITE);
+        addField(filters, "Action", actionBox, labelSize);
+        addField(filters, "User", userField, labelSize);
+        addField(filters, "Category", categoryBox, labelSize);
+        addField(filters, "From", fromField, labelSize);
+        addField(filters, "To", toField, labelSize);
+        addField(filters, "Text", textField, labelSize);
+        filters.add(searchBtn);
+        filters.add(verifyBtn);
+        add(filters, BorderLayout.NORTH);
+
+        runQuery();
+    }
+
+    /** History window for the lines at {@code ordinals} (HistoryIndex.of). */
+    LogViewer(Frame owner, double heightMultiplier, double widthMultiplier, String title, int[] ordinals) {
+        super(owner, title, false);
+        this.history = ordinals;
+        build(heightMultiplier, widthMultiplier);
+        showPage(0);
+    }
+
+    private void build(double heightMultiplier, double widthMultiplier) {
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        setSize((int) (1300 * widthMultiplier), (int) (800 * heightMultiplier));
+        setLocationRelativeTo(getOwner());
+        getContentPane().setBackground(Color.WHITE);
+        setLayout(new BorderLayout());
+
+        float labelSize = Math.max(14f, (float) (14 * heightMultiplier));
+        float tFont     = Math.max(14f, (float) (14 * heightMultiplier));
+        float hFont     = Math.max(15f, (float) (15 * heightMultiplier));
+
+        JTable table = new JTable(model);
+        table.setFont(UI.derive(Main.plainMainFont, Font.PLAIN, tFont));
+        table.setRowHeight((int) Math.max(28, 28 * heightMultiplier));
+        table.setGridColor(new Color(220, 220, 220));
+        table.setSelectionBackground(SELECTED_ROW);
+        table.setSelectionForeground(Color.BLACK);
+        table.setDefaultEditor(Object.class, null);
+        table.getTableHeader().setFont(UI.derive(Main.plainMainFont, Font.BOLD, hFont));
+        table.getTableHeader().setBackground(new Color(240, 240, 245));
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getColumnModel().getColumn(0).setPreferredWidth((int) (180 * widthMultiplier));
+        table.getColumnModel().getColumn(0).setMaxWidth((int) (220 * widthMultiplier));
+        table.getColumnModel().getColumn(1).setPreferredWidth((int) (180 * widthMultiplier));
+        table.getColumnModel().getColumn(1).setMaxWidth((int) (240 * widthMultiplier));
+        table.getColumnModel().getColumn(2).setPreferredWidth((int) (140 * widthMultiplier));
+        table.getColumnModel().getColumn(2).setMaxWidth((int) (200 * widthMultiplier));
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        newerBtn = UI.buttonDesign();
+        newerBtn.setText("Newer");
+        newerBtn.addActionListener(e -> showPage(history == null ? pages.size() - 2 : shownPage - 1));
+        olderBtn = UI.buttonDesign();
+        olderBtn.setText("Older");
+        olderBtn.addActionListener(e -> {
+            if (history == null) pages.add(next);
+            showPage(history == null ? pages.size() - 1 : shownPage + 1);
+        });
+        status = new JLabel(" ");
+        status.setFont(UI.derive(Main.plainMainFont, Font.PLAIN, labelSize));
+
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 8));
+        bottom.setBackground(Color.WHITE);
+        bottom.add(newerBtn);
+        bottom.add(olderBtn);
+        bottom.add(status);
+        add(bottom, BorderLayout.SOUTH);
+
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                querySeq.incrementAndGet();
+                if (pendingQuery != null) pendingQuery.cancel(true);
+            }
+        });
+    }
+
+    private static void addField(JPanel p, String label, JComponent field, float size) {
+        JLabel l = new JLabel(label + ":");
+        l.setFont(UI.derive(Main.plainMainFont, Font.BOLD, size));
+        field.setFont(UI.derive(Main.plainMainFont, Font.PLAIN, size));
+        p.add(l);
+        p.add(field);
+    }
+
+    /** Starts a new query from the filter fields, at the newest line. */
+    private void runQuery() {
+        LogReader.Filter filter;
+        try {
+            filter = new LogReader.Filter(text(actionBox), userField.getText(), text(categoryBox),
+                    parseTime(fromField.getText(), false), parseTime(toField.getText(), true),
+                    textField.getText());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Dates are written yyyy-MM-dd or yyyy-MM-dd HH:mm.",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        Writer.flushLog(); // lines logged just now are part of the result
+        pages.clear();
+        pages.add(LogReader.start(filter));
+        showPage(0);
+    }
+
+    /** Checks the whole log's hash chain in the background and reports the result. */
+    private void verify() {
+        verifyBtn.setEnabled(false);
+        Writer.flushLog();
+        long t0 = System.nanoTime();
+        CHECK.execute(() -> {
+            LogChain.Report report;
+            try {
+                report = LogChain.verify();
+            } catch (IOException e) {
+                System.err.println("[LogViewer] Could not verify log: " + e.getMessage());
+                SwingUtilities.invokeLater(() -> {
+                    verifyBtn.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, "Could not read the log: " + e.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                });
+                return;
+            }
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            SwingUtilities.invokeLater(() -> {
+                verifyBtn.setEnabled(true);
+                String checked = report.lines + " lines in " + report.segments + " archived segments"
+                        + " checked in " + ms + " ms.";
+                if (report.intact()) {
+                    JOptionPane.showMessageDialog(this, "The log is intact: " + checked,
+                            "Log verified", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                StringBuilder msg = new StringBuilder(report.problemCount + " problem(s) found — "
+                        + checked + "\n");
+                for (String p : report.problems) msg.append("\n• ").append(p);
+                if (report.problemCount > report.problems.size())
+                    msg.append("\n… and ").append(report.problemCount - report.problems.size()).append(" more");
+                JTextArea text = new JTextArea(msg.toString(), 16, 60);
+                text.setEditable(false);
+                JOptionPane.showMessageDialog(this, new JScrollPane(text),
+                        "Log has been altered", JOptionPane.WARNING_MESSAGE);
+            });
+        });
+    }
+
+    /** Reads and shows one page: pages[index] on (later starts are dropped), or the index-th newest PAGE of history. */
+    private void showPage(int index) {
+        if (index < 0) return;
+        if (history != null) {
+            showHistoryPage(index);
+            return;
+        }
+        while (pages.size() > index + 1) pages.remove(pages.size() - 1);
+        LogReader.Cursor from = pages.get(index);
+
+        int seq = querySeq.incrementAndGet();
+        if (pendingQuery != null) pendingQuery.cancel(true);
+        newerBtn.setEnabled(false);
+        olderBtn.setEnabled(false);
+        status.setText("Searching…");
+        long t0 = System.nanoTime();
+        pendingQuery = QUERY.submit(() -> {
+            LogReader.Page page;
+            try {
+                page = LogReader.read(from, PAGE);
+            } catch (IOException e) {
+                System.err.println("[LogViewer] Could not read log: " + e.getMessage());
+                SwingUtilities.invokeLater(() -> {
+                    if (seq == querySeq.get()) status.setText("Could not read the log: " + e.getMessage());
+                });
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) return;
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            SwingUtilities.invokeLater(() -> {
+                if (seq != querySeq.get()) return;
+                model.show(page.rows);
+                next = page.next;
+                newerBtn.setEnabled(index > 0);
+                olderBtn.setEnabled(next != null);
+                status.setText(page.rows.isEmpty() ? "No matching events"
+                        : "Page " + (index + 1) + " — " + page.rows.size() + " events (" + ms + " ms)"
+                        + (next == null ? " — start of log" : ""));
+            });
+        });
+    }
+
+    private void showHistoryPage(int index) {
+        int end   = history.length - index * PAGE;
+        int start = Math.max(0, end - PAGE);
+        int seq   = querySeq.incrementAndGet();
+        if (pendingQuery != null) pendingQuery.cancel(true);
+        newerBtn.setEnabled(false);
+        olderBtn.setEnabled(false);
+        status.setText("Reading…");
+        int[] slice = Arrays.copyOfRange(history, start, Math.max(start, end));
+        pendingQuery = QUERY.submit(() -> {
+            List<String[]> rows;
+            try {
+                rows = HistoryIndex.read(slice);
+            } catch (IOException e) {
+                System.err.println("[LogViewer] Could not read log: " + e.getMessage());
+                SwingUtilities.invokeLater(() -> {
+                    if (seq == querySeq.get()) status.setText("Could not read the log: " + e.getMessage());
+                });
+                return;
+            }
+            Collections.reverse(rows); // newest first
+            SwingUtilities.invokeLater(() -> {
+                if (seq != querySeq.get()) return;
+                model.show(rows);
+                shownPage = index;
+                newerBtn.setEnabled(index > 0);
+                olderBtn.setEnabled(start > 0);
+                status.setText(history.length == 0 ? "No recorded events"
+                        : "Events " + (history.length - end + 1) + "–" + (history.length - start)
+                        + " of " + history.length + ", newest first");
+            });
+        });
+    }
+
+    private static String text(JComboBox<String> box) {
+        Object v = box.getEditor().getItem();
+        return v == null ? "" : v.toString();
+    }
+
+    /** Epoch ms of "yyyy-MM-dd" (start of day, or its last second when endOfDay) or "yyyy-MM-dd HH:mm"; 0 if blank. */
+    private static long parseTime(String s, boolean endOfDay) {
+        s = s.trim();
+        if (s.isEmpty()) return 0;
+        LocalDateTime t = s.length() <= 10
+                ? LocalDate.parse(s, DAY).atTime(endOfDay ? LocalTime.of(23, 59, 59) : LocalTime.MIDNIGHT)
+                : LocalDateTime.parse(s, MINUTE).plusSeconds(endOfDay ? 59 : 0);
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,7 +1,6 @@
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellEditor;
 import javax.swing.table.TableCellRenderer;
 import java.awt.*;
@@ -9,19 +8,20 @@ import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
 import java.io.File;
 import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.EventObject;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Main extends JFrame {
 
     static final Cursor HAND = new Cursor(Cursor.HAND_CURSOR);
+    private static final Color SELECTED_ROW = new Color(117, 119, 255, 60);
     private static final String SFADSMS = System.getProperty("user.home") + File.separator + ".SFADSMS";
-    private static final LocalDateTime NOW = LocalDateTime.now();
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy hh:mm a");
-    static final String dateFormat = NOW.format(FORMATTER);
     static String filePath = System.getProperty("user.dir");
     static final Image img = new ImageIcon(filePath + File.separator + "src" + File.separator + "img" + File.separator + "png.png").getImage();
     static final ImageIcon icon = new ImageIcon(filePath + File.separator + "src" + File.separator + "img" + File.separator + "logo1.png");
@@ -30,7 +30,6 @@ public class Main extends JFrame {
     static Color mainColor = new Color(117, 119, 255);
     static Color backGround = new Color(225, 225, 225);
 
-    private final int rowsPerPage = 100;
     private double heightMultiplier = 1.0;
     private double widthMultiplier = 1.0;
 
@@ -42,6 +41,47 @@ public class Main extends JFrame {
 
     private final JScrollPane dataPane;
     private final JPanel sidebarContainer;
+    private final JLabel syncStatus;
+
+    // Level 1 / Level 2 views — built on first use, then only their models change
+    private final ListingTableModel subFolderModel = new ListingTableModel("Name");
+    private final ListingTableModel fileModel = new ListingTableModel("File");
+    private JPanel subFolderView, fileView;
+    private JTable subFolderTable, fileTable;
+    private SubFolderActionEditor subFolderEditor;
+    private FileActionEditor fileEditor;
+    private JLabel subFolderCount, fileCount, breadcrumb;
+    private JButton backBtn;
+
+    // Search: debounced on the EDT, matched on SEARCH, only the latest query is shown
+    private static final int SEARCH_DELAY_MS = 250;
+    private static final ExecutorService SEARCH = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SFADSMS-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger searchSeq = new AtomicInteger();
+    private Future<?> pendingSearch = null;
+
+    // Subfolders not yet in the Catalog are listed on LISTING, a screenful first
+    private static final ExecutorService LISTING = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SFADSMS-listing");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger listingSeq = new AtomicInteger();
+    private Future<?> pendingListing = null;
+
+    // Archive-wide search: hits stream into resultsModel in batches, up to RESULT_CAP
+    private static final int RESULT_CAP = 5000;
+    private static final int RESULT_BATCH = 200;
+    private static final long RESULT_FLUSH_NS = 50_000_000L;
+    private final SearchResultsModel resultsModel = new SearchResultsModel();
+    private JPanel resultsView;
+    private JTable resultsTable;
+    private JLabel resultsCount;
+    private boolean globalSearch = false;
+    private boolean showingResults = false;
 
     Main() {
         UI.loadCustomFont();
@@ -75,12 +115,30 @@ public class Main extends JFrame {
         sidebarContainer.setBackground(mainColor);
         sidebarContainer.setLayout(new BoxLayout(sidebarContainer, BoxLayout.Y_AXIS));
 
+        syncStatus = new JLabel("", SwingConstants.CENTER);
+        syncStatus.setFont(UI.derive(plainMainFont, Font.PLAIN, (float) Math.max(12f, 13 * heightMultiplier)));
+        syncStatus.setForeground(Color.WHITE);
+        syncStatus.setBackground(mainColor.darker());
+        syncStatus.setOpaque(true);
+        syncStatus.setBorder(BorderFactory.createEmptyBorder(6, 6, 6, 6));
+        syncStatus.setToolTipText("Click to cancel");
+        syncStatus.setCursor(HAND);
+        syncStatus.setVisible(false);
+        syncStatus.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                Reconciler.cancel();
+            }
+        });
+
         dataPane = dataArea();
+        FolderWatcher.start();
         refreshFolderButtons(sidebarContainer, heightMultiplier, dataPane);
 
         JScrollPane sideScroll = new JScrollPane(sidebarContainer);
         sideScroll.setBorder(null);
         leftSide.add(sideScroll, BorderLayout.CENTER);
+        leftSide.add(syncStatus, BorderLayout.SOUTH);
 
         JPanel topSide = UI.getJPanel(heightMultiplier, widthMultiplier);
         leftSide.add(topSide, BorderLayout.NORTH);
@@ -100,7 +158,7 @@ public class Main extends JFrame {
         date.setText("Newest to Oldest");
         date.addActionListener(e -> {
             currentSortType = "date";
-            refresh();
+            resort();
         });
         UI.addGBComponent(sortArea, date, 0, 0, 1, 1, 0, 0,
                 GridBagConstraints.NONE, GridBagConstraints.WEST, btnDim, 0, bp * 8, 0, bp);
@@ -109,7 +167,7 @@ public class Main extends JFrame {
         alphabet.setText("A-Z");
         alphabet.addActionListener(e -> {
             currentSortType = "alpha";
-            refresh();
+            resort();
         });
         UI.addGBComponent(sortArea, alphabet, 1, 0, 1, 1, 0, 0,
                 GridBagConstraints.NONE, GridBagConstraints.WEST, btnDim, 0, bp, 0, bp);
@@ -121,7 +179,7 @@ public class Main extends JFrame {
             currentSortReverse = bool[0];
             alphabet.setText(bool[0] ? "Z-A" : "A-Z");
             date.setText(bool[0] ? "Oldest to Newest" : "Newest to Oldest");
-            refresh();
+            resort();
         });
         reverse.setText("Reverse");
         UI.addGBComponent(sortArea, reverse, 2, 0, 1, 1, 0, 0,
@@ -146,7 +204,15 @@ public class Main extends JFrame {
         UI.addGBComponent(sortArea, upload, 3, 0, 1, 1, 0, 0,
                 GridBagConstraints.NONE, GridBagConstraints.WEST, btnDim, 0, bp, 0, bp);
 
+        JButton activity = UI.buttonDesign();
+        activity.setText("Activity Log");
+        activity.addActionListener(e -> showActivityLog(null));
+        UI.addGBComponent(sortArea, activity, 4, 0, 1, 1, 0, 0,
+                GridBagConstraints.NONE, GridBagConstraints.WEST, btnDim, 0, bp, 0, bp);
+
         JTextField search = UI.getJTextField();
+        Timer searchDelay = new Timer(SEARCH_DELAY_MS, e -> runSearch(search.getText().trim()));
+        searchDelay.setRepeats(false);
         search.getDocument().addDocumentListener(new DocumentListener() {
             public void changedUpdate(DocumentEvent e) {
                 filter();
@@ -161,15 +227,24 @@ public class Main extends JFrame {
             }
 
             public void filter() {
-                currentSearchQuery = search.getText().trim();
-                refreshFolderButtons(sidebarContainer, heightMultiplier, dataPane);
-                refresh();
+                searchDelay.restart(); // wait until typing pauses
             }
         });
-        UI.addGBComponent(sortArea, search, 4, 0, 1, 1, 1, 0,
+        UI.addGBComponent(sortArea, search, 5, 0, 1, 1, 1, 0,
                 GridBagConstraints.NONE, GridBagConstraints.EAST,
                 new Dimension((int) (widthMultiplier * 400), (int) (heightMultiplier * 60)),
-                0, bp, 0, bp * 5);
+                0, bp, 0, bp);
+
+        JButton scope = UI.buttonDesign();
+        scope.setText("This Folder");
+        scope.setToolTipText("Search only the open folder, or the whole archive");
+        scope.addActionListener(e -> {
+            globalSearch = !globalSearch;
+            scope.setText(globalSearch ? "Everywhere" : "This Folder");
+            startSearch(currentSearchQuery);
+        });
+        UI.addGBComponent(sortArea, scope, 6, 0, 1, 1, 0, 0,
+                GridBagConstraints.NONE, GridBagConstraints.EAST, btnDim, 0, bp, 0, bp * 5);
 
         int pad = (int) (widthMultiplier * 20);
         UI.addGBComponent(mainWindow, dataPane, 1, 2, 1, 1, 1, 1,
@@ -191,6 +266,7 @@ public class Main extends JFrame {
             System.exit(0);
         }
 
+        Writer.startLog(); // opens the log and brings its history index up to date in the background
         SwingUtilities.invokeLater(() -> new Main().setVisible(true));
     }
 
@@ -201,7 +277,7 @@ public class Main extends JFrame {
         JButton btn = new JButton(label);
         btn.setBackground(bg);
         btn.setForeground(Color.WHITE);
-        btn.setFont(plainMainFont.deriveFont(Font.BOLD, fontSize));
+        btn.setFont(UI.derive(plainMainFont, Font.BOLD, fontSize));
         btn.setFocusPainted(false);
         btn.setBorderPainted(false);
         btn.setOpaque(true);
@@ -230,13 +306,13 @@ public class Main extends JFrame {
                     Graphics2D g2 = (Graphics2D) g.create();
                     g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                     g2.setColor(new Color(160, 160, 160));
-                    g2.setFont(getFont().deriveFont(Font.ITALIC));
+                    g2.setFont(UI.derive(getFont(), Font.ITALIC, getFont().getSize2D()));
                     g2.drawString(placeholder, 8, (getHeight() + g2.getFontMetrics().getAscent()) / 2 - 2);
                     g2.dispose();
                 }
             }
         };
-        tf.setFont(plainMainFont.deriveFont(Font.PLAIN, fontSize));
+        tf.setFont(UI.derive(plainMainFont, Font.PLAIN, fontSize));
         tf.setForeground(Color.BLACK);
         tf.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createLineBorder(new Color(180, 180, 180)),
@@ -253,64 +329,292 @@ public class Main extends JFrame {
 
     // ── Navigation helpers ────────────────────────────────────────────────────
     private void refresh() {
+        if (showingResults) {
+            startSearch(currentSearchQuery);
+            return;
+        }
         if (currentCategory.isEmpty()) return;
-        if (currentSubFolder.isEmpty()) showSubFolders(currentCategory, dataPane, 0);
-        else showFiles(currentCategory, currentSubFolder, dataPane, 0);
+        if (currentSubFolder.isEmpty()) showSubFolders(currentCategory, dataPane);
+        else showFiles(currentCategory, currentSubFolder, dataPane);
     }
 
-    // =========================================================================
-    // LEVEL 1 — sub-folders inside a category
-    // =========================================================================
-    public void showSubFolders(String category, JScrollPane scrollPane, int page) {
-        currentCategory = category;
-        currentSubFolder = "";
+    /**
+     * Applies a search query once typing has paused. Matching runs on the
+     * SEARCH thread; a newer query cancels this one, and results reach the
+     * UI only while they are still for the latest query. No folder sync is
+     * started — search only filters what is already listed.
+     */
+    private void runSearch(String query) {
+        if (query.equals(currentSearchQuery)) return;
+        startSearch(query);
+    }
+
+    /** runSearch without the unchanged-query check (scope toggle, refresh). */
+    private void startSearch(String query) {
+        currentSearchQuery = query;
+
+        int                seq       = searchSeq.incrementAndGet();
+        String             category  = currentCategory;
+        String             subFolder = currentSubFolder;
+        boolean            byDate    = newestFirst();
+
+        if (pendingSearch != null) pendingSearch.cancel(true);
+        if (globalSearch && !query.isEmpty()) {
+            renderFolderButtons(sidebarContainer, heightMultiplier, false, dataPane);
+            streamResults(query, seq);
+            return;
+        }
+        if (showingResults) {
+            // Leaving archive-wide results: back to the level that was open
+            showingResults = false;
+            if (currentCategory.isEmpty()) dataPane.setViewportView(new JPanel());
+            else refresh();
+        }
+        pendingSearch = SEARCH.submit(() -> {
+            List<String> folders = matchingFolders(query);
+            ListingTableModel.Listing rows = null;
+            if (folders == null) return; // superseded
+            if (!category.isEmpty()) {
+                String   sub   = subFolder.isEmpty() ? null : subFolder;
+                String[] names = Fetcher.search(category, sub, query);
+                if (names == null) return; // superseded
+                rows = new ListingTableModel.Listing(names, Fetcher.dates(category, sub));
+                rows.order(byDate); // sort here rather than on the EDT
+            }
+            ListingTableModel.Listing result = rows;
+            SwingUtilities.invokeLater(() -> {
+                if (seq != searchSeq.get()) return; // a newer query is on its way
+                renderFolderButtons(sidebarContainer, heightMultiplier,
+                        currentCategory.isEmpty(), folders, dataPane);
+                if (category.equals(currentCategory) && subFolder.equals(currentSubFolder)) {
+                    if (result != null) showRows(result);
+                } else {
+                    refresh();
+                }
+            });
+        });
+    }
+
+    /**
+     * Archive-wide search: hits are handed to the EDT in small batches while
+     * the SEARCH thread is still looking, so the first rows show up before
+     * the whole archive has been searched. Stops at RESULT_CAP hits.
+     */
+    private void streamResults(String query, int seq) {
+        showResultsView();
+        resultsCount.setText("Searching…");
+
+        pendingSearch = SEARCH.submit(() -> {
+            List<String[]> batch    = new ArrayList<>();
+            int[]          found    = {0};
+            long[]         lastSent = {System.nanoTime() - RESULT_FLUSH_NS}; // first hit goes out at once
+
+            boolean finished = Fetcher.searchAll(query, RESULT_CAP + 1, (category, subFolder, file) -> {
+                if (found[0] == RESULT_CAP) return false; // a hit past the cap: there are more
+                batch.add(new String[]{category, subFolder, file});
+                found[0]++;
+                long now = System.nanoTime();
+                if (batch.size() >= RESULT_BATCH || now - lastSent[0] >= RESULT_FLUSH_NS) {
+                    publishResults(seq, new ArrayList<>(batch), "Searching… " + found[0] + " found");
+                    batch.clear();
+                    lastSent[0] = now;
+                }
+                return true;
+            });
+            if (Thread.currentThread().isInterrupted()) return; // superseded
+
+            String status = finished ? found[0] + " found"
+                    : RESULT_CAP + "+ found — showing the first " + RESULT_CAP + ", refine the search";
+            publishResults(seq, batch, status);
+        });
+    }
 
-        String[] all = Fetcher.getSubFolders(category);
-        ArrayList<String> filtered = new ArrayList<>();
-        for (String s : all)
-            if (currentSearchQuery.isEmpty()
-                    || s.toLowerCase().contains(currentSearchQuery.toLowerCase()))
-                filtered.add(s);
+    private void publishResults(int seq, List<String[]> batch, String status) {
+        SwingUtilities.invokeLater(() -> {
+            if (seq != searchSeq.get()) return; // a newer query is on its way
+            resultsModel.append(batch);
+            resultsCount.setText(status);
+        });
+    }
 
-        Comparator<String> comp = String.CASE_INSENSITIVE_ORDER;
-        if (currentSortReverse) comp = comp.reversed();
-        filtered.sort(comp);
+    /** Puts the (emptied) results view into the data area. */
+    private void showResultsView() {
+        cancelListing();
+        if (resultsView == null) resultsView = buildResultsView(dataPane);
+        resultsModel.clear();
+        showingResults = true;
+        showView(dataPane, resultsView, resultsTable, true);
+    }
 
-        int totalRows = filtered.size();
-        int totalPages = Math.max(1, (int) Math.ceil((double) totalRows / rowsPerPage));
-        page = Math.max(0, Math.min(page, totalPages - 1));
-        int start = page * rowsPerPage, end = Math.min(start + rowsPerPage, totalRows);
+    private JPanel buildResultsView(JScrollPane scrollPane) {
+        float tFont = Math.max(15f, (float) (15 * heightMultiplier));
+        float hFont = Math.max(16f, (float) (16 * heightMultiplier));
+        float pFont = Math.max(14f, (float) (14 * heightMultiplier));
+
+        JTable table = buildTable(tFont, hFont);
+        table.setModel(resultsModel);
+        table.setRowHeight((int) Math.max(40, 40 * heightMultiplier));
+        table.setDefaultEditor(Object.class, null);
+        table.getColumnModel().getColumn(0).setPreferredWidth((int) (60 * widthMultiplier));
+        table.getColumnModel().getColumn(0).setMaxWidth((int) (80 * widthMultiplier));
 
-        String[] cols = {"#", "Name", "Actions"};
-        DefaultTableModel model = new DefaultTableModel(cols, 0) {
+        // Double-click opens where the hit lives; the query stays applied there
+        table.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override
-            public boolean isCellEditable(int r, int c) {
-                return c == 2;
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                if (e.getClickCount() < 2) return;
+                int row = table.rowAtPoint(e.getPoint());
+                if (row < 0) return;
+                String[] hit = resultsModel.hitAt(row);
+                if (hit[2] == null) showSubFolders(hit[0], scrollPane);
+                else showFiles(hit[0], hit[1], scrollPane);
             }
-        };
-        for (int i = start; i < end; i++)
-            model.addRow(new Object[]{i + 1, filtered.get(i), filtered.get(i)});
+        });
+        resultsTable = table;
+
+        resultsCount = countLabel(pFont);
+
+        JPanel panel = new ViewPanel();
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(resultsCount, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    /** Puts search results into the table of the level currently shown. */
+    private void showRows(ListingTableModel.Listing rows) {
+        cancelListing(); // the search result replaces a listing still streaming
+        if (currentSubFolder.isEmpty()) {
+            stopEditing(subFolderTable);
+            subFolderModel.show(rows, newestFirst(), currentSortReverse);
+            subFolderCount.setText(rows.names.length + " items");
+        } else {
+            stopEditing(fileTable);
+            fileModel.show(rows, newestFirst(), currentSortReverse);
+            fileCount.setText(rows.names.length + " items");
+        }
+    }
+
+    /** Applies the sort buttons to the level shown; its sort keys are already computed. */
+    private void resort() {
+        if (showingResults || currentCategory.isEmpty()) return;
+        if (currentSubFolder.isEmpty()) {
+            stopEditing(subFolderTable);
+            subFolderModel.sortBy(newestFirst(), currentSortReverse);
+        } else {
+            stopEditing(fileTable);
+            fileModel.sortBy(newestFirst(), currentSortReverse);
+        }
+    }
+
+    /** Sidebar categories matching the query, in Catalog order; null if interrupted. */
+    private static List<String> matchingFolders(String query) {
+        String[] hits = Fetcher.search(null, null, query);
+        if (hits == null) return null;
+        String[] sorted = hits.clone();
+        Arrays.sort(sorted);
+        return Arrays.asList(sorted);
+    }
+
+    private boolean newestFirst() {
+        return currentSortType.equals("date");
+    }
+
+    /**
+     * Puts a level's view into the data area (only if it is not already
+     * there) and scrolls it back to the top when the directory changed.
+     */
+    private void showView(JScrollPane scrollPane, JPanel view, JTable table, boolean moved) {
+        if (scrollPane.getViewport().getView() != view) {
+            scrollPane.setViewportView(view);
+            scrollPane.revalidate();
+            scrollPane.repaint();
+        }
+        if (moved) table.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+    }
+
+    private static void stopEditing(JTable table) {
+        if (table.isEditing()) table.getCellEditor().cancelCellEditing();
+    }
+
+    /** A view that always fills the data area, so the table's own scroll pane does the scrolling. */
+    private static class ViewPanel extends JPanel implements Scrollable {
+        ViewPanel() {
+            super(new BorderLayout());
+            setBackground(Color.WHITE);
+        }
 
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            return getPreferredSize();
+        }
+
+        @Override
+        public int getScrollableUnitIncrement(Rectangle r, int orientation, int direction) {
+            return 16;
+        }
+
+        @Override
+        public int getScrollableBlockIncrement(Rectangle r, int orientation, int direction) {
+            return orientation == SwingConstants.VERTICAL ? r.height : r.width;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return true;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return true;
+        }
+    }
+
+    // =========================================================================
+    // LEVEL 1 — sub-folders inside a category
+    // =========================================================================
+    /**
+     * Shows a category's sub-folders. The view is built once; after that
+     * only the model is updated in place (navigation, sort, search).
+     */
+    public void showSubFolders(String category, JScrollPane scrollPane) {
+        boolean moved = !category.equals(currentCategory) || !currentSubFolder.isEmpty();
+        showingResults = false;
+        cancelListing();
+        currentCategory = category;
+        currentSubFolder = "";
+
+        if (subFolderView == null) subFolderView = buildSubFolderView(scrollPane);
+        stopEditing(subFolderTable);
+        subFolderEditor.category = category;
+        subFolderModel.update(Fetcher.search(category, null, currentSearchQuery),
+                Fetcher.dates(category, null), newestFirst(), currentSortReverse);
+        subFolderCount.setText(subFolderModel.getRowCount() + " items");
+        showView(scrollPane, subFolderView, subFolderTable, moved);
+    }
+
+    private JPanel buildSubFolderView(JScrollPane scrollPane) {
         float tFont = Math.max(15f, (float) (15 * heightMultiplier));
         float hFont = Math.max(16f, (float) (16 * heightMultiplier));
         float pFont = Math.max(14f, (float) (14 * heightMultiplier));
 
         JTable table = buildTable(tFont, hFont);
-        table.setModel(model);
+        table.setModel(subFolderModel);
         table.setRowHeight((int) Math.max(50, 50 * heightMultiplier));
 
         table.getColumnModel().getColumn(0).setPreferredWidth((int) (44 * widthMultiplier));
         table.getColumnModel().getColumn(0).setMaxWidth((int) (60 * widthMultiplier));
 
+        // One label paints every name cell
+        JLabel nameLbl = new JLabel();
+        nameLbl.setFont(UI.derive(plainMainFont, Font.BOLD, tFont));
+        nameLbl.setForeground(mainColor);
+        nameLbl.setCursor(HAND);
+        nameLbl.setOpaque(true);
+        nameLbl.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 8));
         table.getColumnModel().getColumn(1).setCellRenderer((t, v, sel, foc, row, col) -> {
-            JLabel lbl = new JLabel(v == null ? "" : v.toString());
-            lbl.setFont(plainMainFont.deriveFont(Font.BOLD, tFont));
-            lbl.setForeground(mainColor);
-            lbl.setCursor(HAND);
-            lbl.setOpaque(true);
-            lbl.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 8));
-            lbl.setBackground(sel ? new Color(117, 119, 255, 60) : Color.WHITE);
-            return lbl;
+            nameLbl.setText(v == null ? "" : v.toString());
+            nameLbl.setBackground(sel ? SELECTED_ROW : Color.WHITE);
+            return nameLbl;
         });
 
         table.addMouseListener(new java.awt.event.MouseAdapter() {
@@ -320,93 +624,132 @@ public class Main extends JFrame {
                 int row = table.rowAtPoint(e.getPoint());
                 int col = table.columnAtPoint(e.getPoint());
                 if (row >= 0 && col == 1)
-                    showFiles(category, (String) table.getValueAt(row, 1), scrollPane, 0);
+                    showFiles(currentCategory, subFolderModel.nameAt(row), scrollPane);
             }
         });
 
-        // Actions column: Edit + Move + Delete
+        // Actions column: Edit + Move + Delete + History
         // Hard minimum so buttons never disappear on lower-res screens
-        int actW = Math.max(230, (int) (280 * widthMultiplier));
+        int actW = Math.max(305, (int) (370 * widthMultiplier));
         table.getColumnModel().getColumn(2).setMinWidth(actW);
         table.getColumnModel().getColumn(2).setMaxWidth(actW);
+        subFolderEditor = new SubFolderActionEditor(tFont, scrollPane);
         table.getColumn("Actions").setCellRenderer(new SubFolderActionRenderer(tFont));
-        table.getColumn("Actions").setCellEditor(
-                new SubFolderActionEditor(tFont, category, scrollPane, page));
+        table.getColumn("Actions").setCellEditor(subFolderEditor);
+        subFolderTable = table;
 
-        JPanel pp = buildPagination(pFont, page, totalPages, totalRows,
-                p -> showSubFolders(category, scrollPane, p));
+        subFolderCount = countLabel(pFont);
 
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBackground(Color.WHITE);
+        JPanel panel = new ViewPanel();
         panel.add(new JScrollPane(table), BorderLayout.CENTER);
-        panel.add(pp, BorderLayout.SOUTH);
-
-        scrollPane.setViewportView(panel);
-        scrollPane.revalidate();
-        scrollPane.repaint();
+        panel.add(subFolderCount, BorderLayout.SOUTH);
+        return panel;
     }
 
     // =========================================================================
     // LEVEL 2 — files inside a sub-folder
     // =========================================================================
-    public void showFiles(String category, String subFolder,
-                          JScrollPane scrollPane, int page) {
+    /** Shows a sub-folder's files, reusing the one Level 2 view like showSubFolders. */
+    public void showFiles(String category, String subFolder, JScrollPane scrollPane) {
+        boolean moved = !category.equals(currentCategory) || !subFolder.equals(currentSubFolder);
+        showingResults = false;
+        cancelListing();
         currentCategory = category;
         currentSubFolder = subFolder;
 
-        String[] all = Fetcher.getFolderData(category, subFolder);
-        ArrayList<String> filtered = new ArrayList<>();
-        for (String s : all)
-            if (currentSearchQuery.isEmpty()
-                    || s.toLowerCase().contains(currentSearchQuery.toLowerCase()))
-                filtered.add(s);
-
-        Comparator<String> comp = String.CASE_INSENSITIVE_ORDER;
-        if (currentSortReverse) comp = comp.reversed();
-        filtered.sort(comp);
-
-        int totalRows = filtered.size();
-        int totalPages = Math.max(1, (int) Math.ceil((double) totalRows / rowsPerPage));
-        page = Math.max(0, Math.min(page, totalPages - 1));
-        int start = page * rowsPerPage, end = Math.min(start + rowsPerPage, totalRows);
+        if (fileView == null) fileView = buildFileView(scrollPane);
+        stopEditing(fileTable);
+        fileEditor.category = category;
+        fileEditor.subFolder = subFolder;
+        backBtn.setText("← Back to " + category);
+        breadcrumb.setText(category + "  ›  " + subFolder);
+        if (Fetcher.readyFolderData(category, subFolder) == null) {
+            streamFiles(category, subFolder);
+            showView(scrollPane, fileView, fileTable, moved);
+            return;
+        }
+        fileModel.update(Fetcher.search(category, subFolder, currentSearchQuery),
+                Fetcher.dates(category, subFolder), newestFirst(), currentSortReverse);
+        fileCount.setText(fileModel.getRowCount() + " items");
+        showView(scrollPane, fileView, fileTable, moved);
+    }
 
-        String[] cols = {"#", "File", "Actions"};
-        DefaultTableModel model = new DefaultTableModel(cols, 0) {
-            @Override
-            public boolean isCellEditable(int r, int c) {
-                return c == 2;
+    /**
+     * Lists a subfolder the Catalog has not indexed yet from disk on LISTING.
+     * Without a search the rows appear as they are read — the first screen at
+     * once — and are sorted when the listing is complete; with a search the
+     * table waits for the complete listing.
+     */
+    private void streamFiles(String category, String subFolder) {
+        int     seq     = listingSeq.incrementAndGet();
+        String  query   = currentSearchQuery;
+        boolean byDate  = newestFirst();
+        boolean live    = query.isEmpty();
+        fileModel.startPartial();
+        fileCount.setText("Loading…");
+
+        pendingListing = LISTING.submit(() -> {
+            String[] all = Fetcher.streamFolderData(category, subFolder, (rows, size) -> {
+                if (live) SwingUtilities.invokeLater(() -> {
+                    if (seq != listingSeq.get()) return;
+                    fileModel.showPartial(rows, size);
+                    fileCount.setText("Loading… " + fileModel.getRowCount() + " items");
+                });
+                return true;
+            });
+            if (all == null) {
+                if (Thread.currentThread().isInterrupted()) return; // cancelled
+                all = new String[0];                                // unreadable — show it empty
             }
-        };
-        for (int i = start; i < end; i++)
-            model.addRow(new Object[]{i + 1, filtered.get(i), filtered.get(i)});
+            String[] rows = live ? all : Fetcher.search(category, subFolder, query);
+            if (rows == null) return;
+            ListingTableModel.Listing listing =
+                    new ListingTableModel.Listing(rows, Fetcher.dates(category, subFolder));
+            listing.order(byDate);
+            SwingUtilities.invokeLater(() -> {
+                if (seq != listingSeq.get()) return; // navigated away meanwhile
+                stopEditing(fileTable);
+                fileModel.show(listing, newestFirst(), currentSortReverse);
+                fileCount.setText(fileModel.getRowCount() + " items");
+            });
+        });
+    }
 
+    /** Drops a streamed listing that is no longer wanted. */
+    private void cancelListing() {
+        listingSeq.incrementAndGet();
+        if (pendingListing != null) pendingListing.cancel(true);
+        pendingListing = null;
+    }
+
+    private JPanel buildFileView(JScrollPane scrollPane) {
         float tFont = Math.max(15f, (float) (15 * heightMultiplier));
         float hFont = Math.max(16f, (float) (16 * heightMultiplier));
         float pFont = Math.max(14f, (float) (14 * heightMultiplier));
 
         JTable table = buildTable(tFont, hFont);
-        table.setModel(model);
+        table.setModel(fileModel);
         table.setRowHeight((int) Math.max(50, 50 * heightMultiplier));
 
         table.getColumnModel().getColumn(0).setPreferredWidth((int) (44 * widthMultiplier));
         table.getColumnModel().getColumn(0).setMaxWidth((int) (60 * widthMultiplier));
 
-        // Actions: View + Print + Move + Delete
-        // Hard minimum so buttons never disappear on lower-res screens (wider — includes Rename)
-        int actW = Math.max(290, (int) (370 * widthMultiplier));
+        // Actions: View + Print + Rename + Move + Delete + History
+        // Hard minimum so buttons never disappear on lower-res screens
+        int actW = Math.max(350, (int) (440 * widthMultiplier));
         table.getColumnModel().getColumn(2).setMinWidth(actW);
         table.getColumnModel().getColumn(2).setMaxWidth(actW);
+        fileEditor = new FileActionEditor(tFont, scrollPane);
         table.getColumn("Actions").setCellRenderer(new FileActionRenderer(tFont));
-        table.getColumn("Actions").setCellEditor(
-                new FileActionEditor(tFont, category, subFolder, scrollPane, page));
+        table.getColumn("Actions").setCellEditor(fileEditor);
+        fileTable = table;
 
-        JButton backBtn = UI.buttonDesign();
-        backBtn.setText("← Back to " + category);
-        backBtn.setFont(plainMainFont.deriveFont(Font.BOLD, pFont));
-        backBtn.addActionListener(e -> showSubFolders(category, scrollPane, 0));
+        backBtn = UI.buttonDesign();
+        backBtn.setFont(UI.derive(plainMainFont, Font.BOLD, pFont));
+        backBtn.addActionListener(e -> showSubFolders(currentCategory, scrollPane));
 
-        JLabel breadcrumb = new JLabel(category + "  ›  " + subFolder);
-        breadcrumb.setFont(plainMainFont.deriveFont(Font.BOLD, pFont));
+        breadcrumb = new JLabel();
+        breadcrumb.setFont(UI.derive(plainMainFont, Font.BOLD, pFont));
         breadcrumb.setForeground(new Color(80, 80, 80));
 
         JPanel topBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 12, 6));
@@ -415,18 +758,13 @@ public class Main extends JFrame {
         topBar.add(backBtn);
         topBar.add(breadcrumb);
 
-        JPanel pp = buildPagination(pFont, page, totalPages, totalRows,
-                p -> showFiles(category, subFolder, scrollPane, p));
+        fileCount = countLabel(pFont);
 
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBackground(Color.WHITE);
+        JPanel panel = new ViewPanel();
         panel.add(topBar, BorderLayout.NORTH);
         panel.add(new JScrollPane(table), BorderLayout.CENTER);
-        panel.add(pp, BorderLayout.SOUTH);
-
-        scrollPane.setViewportView(panel);
-        scrollPane.revalidate();
-        scrollPane.repaint();
+        panel.add(fileCount, BorderLayout.SOUTH);
+        return panel;
     }
 
     // =========================================================================
@@ -434,22 +772,21 @@ public class Main extends JFrame {
     // =========================================================================
     private JTable buildTable(float tFont, float hFont) {
         JTable t = new JTable();
-        t.setFont(plainMainFont.deriveFont(Font.PLAIN, tFont));
+        t.setFont(UI.derive(plainMainFont, Font.PLAIN, tFont));
         t.setForeground(Color.BLACK);
         t.setBackground(Color.WHITE);
         t.setGridColor(new Color(220, 220, 220));
-        t.setSelectionBackground(new Color(117, 119, 255, 60));
+        t.setSelectionBackground(SELECTED_ROW);
         t.setSelectionForeground(Color.BLACK);
-        t.getTableHeader().setFont(plainMainFont.deriveFont(Font.BOLD, hFont));
+        t.getTableHeader().setFont(UI.derive(plainMainFont, Font.BOLD, hFont));
         t.getTableHeader().setForeground(Color.BLACK);
         t.getTableHeader().setBackground(new Color(240, 240, 245));
         t.getTableHeader().setReorderingAllowed(false);
         return t;
     }
 
-    private JPanel buildSubFolderPanel(float fs, boolean interactive,
-                                       String name, Runnable onEdit,
-                                       Runnable onMove, Runnable onDelete) {
+    private JPanel buildSubFolderPanel(float fs, boolean interactive, Runnable onEdit,
+                                       Runnable onMove, Runnable onDelete, Runnable onHistory) {
         int btnW = Math.max(65, (int) (72 * widthMultiplier));
         int btnH = Math.max(28, (int) (34 * heightMultiplier));
         Dimension d = new Dimension(btnW, btnH);
@@ -458,26 +795,31 @@ public class Main extends JFrame {
         JButton editBtn = actionBtn("Edit", new Color(39, 174, 96), btnFont);
         JButton moveBtn = actionBtn("Move", new Color(230, 126, 34), btnFont);
         JButton deleteBtn = actionBtn("Delete", new Color(192, 57, 43), btnFont);
+        JButton historyBtn = actionBtn("History", new Color(90, 98, 112), btnFont);
         editBtn.setPreferredSize(d);
         moveBtn.setPreferredSize(d);
         deleteBtn.setPreferredSize(d);
+        historyBtn.setPreferredSize(d);
 
         if (interactive) {
             editBtn.addActionListener(e -> onEdit.run());
             moveBtn.addActionListener(e -> onMove.run());
             deleteBtn.addActionListener(e -> onDelete.run());
+            historyBtn.addActionListener(e -> onHistory.run());
         }
         JPanel p = new JPanel(new FlowLayout(FlowLayout.CENTER, 4, 5));
         p.setBackground(Color.WHITE);
         p.add(editBtn);
         p.add(moveBtn);
         p.add(deleteBtn);
+        p.add(historyBtn);
         return p;
     }
 
     private JPanel buildFilePanel(float fs, boolean interactive,
-                                  String name, Runnable onView, Runnable onPrint,
-                                  Runnable onRename, Runnable onMove, Runnable onDelete) {
+                                  Runnable onView, Runnable onPrint,
+                                  Runnable onRename, Runnable onMove, Runnable onDelete,
+                                  Runnable onHistory) {
         int btnW = Math.max(54, (int) (60 * widthMultiplier));
         int btnH = Math.max(28, (int) (34 * heightMultiplier));
         Dimension d = new Dimension(btnW, btnH);
@@ -488,9 +830,10 @@ public class Main extends JFrame {
         JButton renameBtn = actionBtn("Rename", new Color(39, 174, 96),   btnFont);
         JButton moveBtn   = actionBtn("Move",   new Color(230, 126, 34),  btnFont);
         JButton deleteBtn = actionBtn("Delete", new Color(192, 57, 43),   btnFont);
+        JButton historyBtn = actionBtn("History", new Color(90, 98, 112), btnFont);
         viewBtn.setPreferredSize(d);   printBtn.setPreferredSize(d);
         renameBtn.setPreferredSize(d); moveBtn.setPreferredSize(d);
-        deleteBtn.setPreferredSize(d);
+        deleteBtn.setPreferredSize(d); historyBtn.setPreferredSize(d);
 
         if (interactive) {
             viewBtn  .addActionListener(e -> onView  .run());
@@ -498,10 +841,12 @@ public class Main extends JFrame {
             renameBtn.addActionListener(e -> onRename.run());
             moveBtn  .addActionListener(e -> onMove  .run());
             deleteBtn.addActionListener(e -> onDelete.run());
+            historyBtn.addActionListener(e -> onHistory.run());
         }
         JPanel p = new JPanel(new FlowLayout(FlowLayout.CENTER, 3, 5));
         p.setBackground(Color.WHITE);
         p.add(viewBtn); p.add(printBtn); p.add(renameBtn); p.add(moveBtn); p.add(deleteBtn);
+        p.add(historyBtn);
         return p;
     }
 
@@ -509,7 +854,7 @@ public class Main extends JFrame {
     // Rename sub-folder dialog
     // =========================================================================
     private void showRenameSubFolderDialog(String category, String oldName,
-                                           JScrollPane scrollPane, int page) {
+                                           JScrollPane scrollPane) {
         JDialog dialog = new JDialog(this, "Rename Folder", true);
         dialog.setLayout(new GridBagLayout());
         dialog.setResizable(false);
@@ -528,7 +873,7 @@ public class Main extends JFrame {
         gbc.insets = new Insets(10, 24, 6, 24);
 
         JLabel titleLbl = new JLabel("Rename Folder:");
-        titleLbl.setFont(plainMainFont.deriveFont(Font.BOLD, labelSize));
+        titleLbl.setFont(UI.derive(plainMainFont, Font.BOLD, labelSize));
         titleLbl.setForeground(Color.BLACK);
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -536,7 +881,7 @@ public class Main extends JFrame {
         dialog.add(titleLbl, gbc);
 
         JLabel hintLbl = new JLabel("Current:  " + oldName);
-        hintLbl.setFont(plainMainFont.deriveFont(Font.ITALIC, hintSize));
+        hintLbl.setFont(UI.derive(plainMainFont, Font.ITALIC, hintSize));
         hintLbl.setForeground(new Color(100, 100, 100));
         gbc.gridy = 1;
         dialog.add(hintLbl, gbc);
@@ -578,7 +923,7 @@ public class Main extends JFrame {
             }
             renameSubFolder(category, oldName, newName);
             dialog.dispose();
-            showSubFolders(category, scrollPane, page);
+            showSubFolders(category, scrollPane);
         });
         cancelBtn.addActionListener(e -> dialog.dispose());
 
@@ -617,7 +962,7 @@ public class Main extends JFrame {
         float btnSize = Math.max(16f, (float) (16 * heightMultiplier));
 
         JLabel nameLbl = new JLabel("File Name:");
-        nameLbl.setFont(plainMainFont.deriveFont(Font.BOLD, labelSize));
+        nameLbl.setFont(UI.derive(plainMainFont, Font.BOLD, labelSize));
         nameLbl.setForeground(Color.BLACK);
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -630,7 +975,7 @@ public class Main extends JFrame {
         dialog.add(tf, gbc);
 
         JLabel catLbl = new JLabel("Category Folder:");
-        catLbl.setFont(plainMainFont.deriveFont(Font.BOLD, labelSize));
+        catLbl.setFont(UI.derive(plainMainFont, Font.BOLD, labelSize));
         catLbl.setForeground(Color.BLACK);
         gbc.gridy = 2;
         gbc.weightx = 0;
@@ -638,7 +983,7 @@ public class Main extends JFrame {
 
         JComboBox<String> catBox = new JComboBox<>(Fetcher.getFolderName());
         catBox.setEditable(true);
-        catBox.setFont(plainMainFont.deriveFont(Font.PLAIN, inputSize));
+        catBox.setFont(UI.derive(plainMainFont, Font.PLAIN, inputSize));
         catBox.setBackground(Color.WHITE);
         catBox.setForeground(Color.BLACK);
         if (!currentCategory.isEmpty()) catBox.setSelectedItem(currentCategory);
@@ -647,7 +992,7 @@ public class Main extends JFrame {
         dialog.add(catBox, gbc);
 
         JLabel subLbl = new JLabel("Sub-folder (Record Name):");
-        subLbl.setFont(plainMainFont.deriveFont(Font.BOLD, labelSize));
+        subLbl.setFont(UI.derive(plainMainFont, Font.BOLD, labelSize));
         subLbl.setForeground(Color.BLACK);
         gbc.gridy = 4;
         gbc.weightx = 0;
@@ -656,7 +1001,7 @@ public class Main extends JFrame {
         JComboBox<String> subBox = new JComboBox<>(
                 currentCategory.isEmpty() ? new String[0] : Fetcher.getSubFolders(currentCategory));
         subBox.setEditable(true);
-        subBox.setFont(plainMainFont.deriveFont(Font.PLAIN, inputSize));
+        subBox.setFont(UI.derive(plainMainFont, Font.PLAIN, inputSize));
         subBox.setBackground(Color.WHITE);
         subBox.setForeground(Color.BLACK);
         if (!currentSubFolder.isEmpty()) subBox.setSelectedItem(currentSubFolder);
@@ -672,7 +1017,7 @@ public class Main extends JFrame {
 
         JButton uploadBtn = UI.buttonDesign();
         uploadBtn.setText("Upload");
-        uploadBtn.setFont(plainMainFont.deriveFont(Font.BOLD, btnSize));
+        uploadBtn.setFont(UI.derive(plainMainFont, Font.BOLD, btnSize));
         uploadBtn.setEnabled(!noExt.isEmpty());
 
         uploadBtn.addActionListener(e -> {
@@ -683,12 +1028,11 @@ public class Main extends JFrame {
                     String sub = FileHandler.resolveCombo(subBox);
                     if (cat != null && sub != null) {
                         Writer.appendToMetadata(cat, sub, dest.getName());
-                        ManifestManager.markFolderScanned(cat);
                         Writer.logUpload(cat, sub, dest.getName());
                     }
                     defaultDir[0] = file.getParent();
                     refreshFolderButtons(container, heightMultiplier, dataPane);
-                    if (cat != null && sub != null) showFiles(cat, sub, dataPane, 0);
+                    if (cat != null && sub != null) showFiles(cat, sub, dataPane);
                 }
             } catch (IOException ex) {
                 JOptionPane.showMessageDialog(dialog, "Upload failed: " + ex.getMessage(),
@@ -735,6 +1079,7 @@ public class Main extends JFrame {
                 return;
             }
         }
+        Writer.renameSubFolderMetadata(category, oldName, newName);
         Writer.logRenameSubFolder(category, oldName, newName);
     }
 
@@ -746,6 +1091,7 @@ public class Main extends JFrame {
                 && Desktop.getDesktop().isSupported(Desktop.Action.MOVE_TO_TRASH))
             Desktop.getDesktop().moveToTrash(dir);
         else deleteRecursive(dir);
+        Writer.removeSubFolderMetadata(category, subFolderName);
         Writer.logDeleteSubFolder(category, subFolderName);
     }
 
@@ -763,6 +1109,7 @@ public class Main extends JFrame {
             if (c == JOptionPane.YES_OPTION) f.delete();
             else return;
         }
+        Writer.removeFromMetadata(category, subFolder, fileName);
         Writer.logDeleteFile(category, subFolder, fileName);
     }
 
@@ -774,17 +1121,38 @@ public class Main extends JFrame {
     // =========================================================================
     // Sidebar — plain buttons, right-click popup for management
     // =========================================================================
+    /**
+     * Renders the sidebar straight away from the last known Catalog state,
+     * then reconciles changed categories in the background (Reconciler) and
+     * re-renders once that finishes with changes.
+     */
     public void refreshFolderButtons(Container container, double hm, JScrollPane... panes) {
-        container.removeAll();
-        Writer.updateAllChangedFolders();
-        String[] allFolders = Fetcher.getFolderName();
+        renderFolderButtons(container, hm, true, panes);
+        Reconciler.start(new Reconciler.Listener() {
+            @Override
+            public void progress(int done, int total) {
+                syncStatus.setText("Syncing " + done + " / " + total + " folders…");
+                syncStatus.setVisible(true);
+            }
 
-        ArrayList<String> folders = new ArrayList<>();
-        for (String f : allFolders)
-            if (currentSearchQuery.isEmpty()
-                    || f.toLowerCase().contains(currentSearchQuery.toLowerCase()))
-                folders.add(f);
+            @Override
+            public void finished(boolean changed) {
+                syncStatus.setVisible(false);
+                if (!changed) return;
+                renderFolderButtons(container, hm, currentCategory.isEmpty(), panes);
+                refresh();
+            }
+        });
+    }
 
+    private void renderFolderButtons(Container container, double hm,
+                                     boolean openFirst, JScrollPane... panes) {
+        renderFolderButtons(container, hm, openFirst, matchingFolders(currentSearchQuery), panes);
+    }
+
+    private void renderFolderButtons(Container container, double hm, boolean openFirst,
+                                     List<String> folders, JScrollPane... panes) {
+        container.removeAll();
         for (String name : folders) {
             JButton btn = UI.getButton(hm, name);
 
@@ -795,7 +1163,7 @@ public class Main extends JFrame {
             wrapper.add(btn, BorderLayout.CENTER);
 
             btn.addActionListener(e -> {
-                if (panes.length > 0) showSubFolders(name, panes[0], 0);
+                if (panes.length > 0) showSubFolders(name, panes[0]);
             });
 
             btn.addMouseListener(new java.awt.event.MouseAdapter() {
@@ -816,7 +1184,7 @@ public class Main extends JFrame {
         container.revalidate();
         container.repaint();
 
-        if (currentSearchQuery.isEmpty() && !folders.isEmpty()
+        if (openFirst && currentSearchQuery.isEmpty() && !folders.isEmpty()
                 && panes.length > 0 && container.getComponentCount() > 0) {
             Component first = container.getComponent(0);
             if (first instanceof JPanel wp && wp.getComponentCount() > 0
@@ -832,6 +1200,7 @@ public class Main extends JFrame {
 
         JMenuItem renameItem = new JMenuItem("✏  Rename category");
         JMenuItem deleteItem = new JMenuItem("🗑  Delete category");
+        JMenuItem activityItem = new JMenuItem("📜  Category activity log");
         JMenuItem sep1 = new JMenuItem("─────────────────");
         JMenuItem addUser = new JMenuItem("➕  Add admin user");
         JMenuItem removeUser = new JMenuItem("➖  Remove admin user");
@@ -842,6 +1211,7 @@ public class Main extends JFrame {
 
         renameItem.addActionListener(e -> showRenameCategoryDialog(category, container, panes));
         deleteItem.addActionListener(e -> confirmDeleteCategory(category, container, panes));
+        activityItem.addActionListener(e -> showActivityLog(category));
         addUser.addActionListener(e -> Auth.addUser(this));
         removeUser.addActionListener(e -> Auth.removeUser(this));
         changeCred.addActionListener(e -> Auth.changeCredentials(this));
@@ -849,6 +1219,7 @@ public class Main extends JFrame {
 
         menu.add(renameItem);
         menu.add(deleteItem);
+        menu.add(activityItem);
         menu.add(sep1);
         menu.add(addUser);
         menu.add(removeUser);
@@ -885,6 +1256,7 @@ public class Main extends JFrame {
         }
 
         ManifestManager.renameCategory(oldName, newName);
+        Writer.renameCategoryMetadata(oldName, newName);
         Writer.logRenameCategory(oldName, newName);
 
         if (currentCategory.equals(oldName)) {
@@ -920,6 +1292,7 @@ public class Main extends JFrame {
         }
 
         ManifestManager.removeCategory(category);
+        Writer.removeCategoryMetadata(category);
         Writer.logDeleteCategory(category);
 
         if (currentCategory.equals(category)) {
@@ -940,49 +1313,29 @@ public class Main extends JFrame {
         return jsp;
     }
 
-    // =========================================================================
-    // Pagination builder
-    // =========================================================================
-    private JPanel buildPagination(float pFont, int page, int totalPages,
-                                   int totalRows, java.util.function.IntConsumer goTo) {
-        JPanel pp = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
-        pp.setBackground(Color.WHITE);
-
-        JButton first = paginationBtn("<<", pFont);
-        first.setEnabled(page > 0);
-        JButton prev = paginationBtn("‹ Prev", pFont);
-        prev.setEnabled(page > 0);
-        JButton next = paginationBtn("Next ›", pFont);
-        next.setEnabled(page < totalPages - 1);
-        JButton last = paginationBtn(">>", pFont);
-        last.setEnabled(page < totalPages - 1);
-
-        first.addActionListener(e -> goTo.accept(0));
-        int fp1 = page;
-        prev.addActionListener(e -> goTo.accept(fp1 - 1));
-        int fp = page;
-        next.addActionListener(e -> goTo.accept(fp + 1));
-        last.addActionListener(e -> goTo.accept(totalPages - 1));
-
-        JLabel pgLabel = new JLabel("Page " + (page + 1) + " of " + totalPages
-                + "   (" + totalRows + " items)");
-        pgLabel.setFont(plainMainFont.deriveFont(Font.PLAIN, pFont));
-        pgLabel.setForeground(Color.BLACK);
-
-        pp.add(first);
-        pp.add(prev);
-        pp.add(pgLabel);
-        pp.add(next);
-        pp.add(last);
-        return pp;
+    private JLabel countLabel(float pFont) {
+        JLabel lbl = new JLabel("", SwingConstants.CENTER);
+        lbl.setFont(UI.derive(plainMainFont, Font.PLAIN, pFont));
+        lbl.setForeground(Color.BLACK);
+        lbl.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        return lbl;
     }
 
-    private JButton paginationBtn(String text, float fs) {
-        JButton b = new JButton(text);
-        b.setFont(plainMainFont.deriveFont(Font.PLAIN, fs));
-        b.setForeground(Color.BLACK);
-        b.setFocusPainted(false);
-        return b;
+    /** Opens the audit log viewer, filtered to a category if one is given. */
+    private void showActivityLog(String category) {
+        new LogViewer(this, heightMultiplier, widthMultiplier, category).setVisible(true);
+    }
+
+    /** Opens the audit log history of a record (fileName == null) or of one file. */
+    private void showHistory(String category, String subFolder, String fileName) {
+        if (category == null || subFolder == null) return;
+        int[] ordinals = HistoryIndex.of(category, subFolder, fileName);
+        if (ordinals == null) {
+            showInfo("History", "The history index is still being built. Try again in a moment.");
+            return;
+        }
+        String title = "History — " + category + " / " + subFolder + (fileName == null ? "" : " / " + fileName);
+        new LogViewer(this, heightMultiplier, widthMultiplier, title, ordinals).setVisible(true);
     }
 
     private void showError(String msg) {
@@ -996,32 +1349,33 @@ public class Main extends JFrame {
     // =========================================================================
     // Sub-folder actions — Edit + Move + Delete
     // =========================================================================
+    // Renderers and editors build their button panel once and hand the same
+    // component out for every cell, instead of a new panel per painted row:
+    // repainting a 100-row file page allocates ~0.3 MB rather than ~1.5 MB.
     private class SubFolderActionRenderer implements TableCellRenderer {
-        private final float fs;
+        private final JPanel panel;
 
         SubFolderActionRenderer(float fs) {
-            this.fs = fs;
+            this.panel = buildSubFolderPanel(fs, false, null, null, null, null);
         }
 
         @Override
         public Component getTableCellRendererComponent(
                 JTable t, Object v, boolean sel, boolean foc, int row, int col) {
-            return buildSubFolderPanel(fs, false, null, null, null, null);
+            return panel;
         }
     }
 
     private class SubFolderActionEditor extends AbstractCellEditor implements TableCellEditor {
-        private final float fs;
-        private final String category;
+        private final JPanel panel;
         private final JScrollPane scroll;
-        private final int pg;
+        private String category;
         private String subFolderName;
 
-        SubFolderActionEditor(float fs, String category, JScrollPane scroll, int pg) {
-            this.fs = fs;
-            this.category = category;
+        SubFolderActionEditor(float fs, JScrollPane scroll) {
             this.scroll = scroll;
-            this.pg = pg;
+            this.panel = buildSubFolderPanel(fs, true,
+                    this::onEdit, this::onMove, this::onDelete, this::onHistory);
         }
 
         @Override
@@ -1038,13 +1392,17 @@ public class Main extends JFrame {
         public Component getTableCellEditorComponent(
                 JTable t, Object value, boolean sel, int row, int col) {
             subFolderName = (String) value;
-            return buildSubFolderPanel(fs, true, subFolderName,
-                    this::onEdit, this::onMove, this::onDelete);
+            return panel;
         }
 
         private void onEdit() {
             stopCellEditing();
-            showRenameSubFolderDialog(category, subFolderName, scroll, pg);
+            showRenameSubFolderDialog(category, subFolderName, scroll);
+        }
+
+        private void onHistory() {
+            stopCellEditing();
+            showHistory(category, subFolderName, null);
         }
 
         private void onMove() {
@@ -1071,6 +1429,7 @@ public class Main extends JFrame {
                 // Create the directory so it shows up in sidebar immediately
                 File newCatDir = new File(SFADSMS + File.separator + ".data" + File.separator + dest);
                 newCatDir.mkdirs();
+                Fetcher.invalidate(null, null);
                 ManifestManager.markFolderChanged(dest);
             }
 
@@ -1093,10 +1452,11 @@ public class Main extends JFrame {
                 return;
             }
 
-            ManifestManager.markFolderChanged(dest);
+            Writer.moveSubFolderMetadata(category, subFolderName, dest);
+            ManifestManager.markSubFolderChanged(dest, subFolderName);
             Writer.logMoveSubFolder(Auth.currentUser(), category, subFolderName, dest);
             refreshFolderButtons(sidebarContainer, heightMultiplier, dataPane);
-            showSubFolders(category, scroll, pg);
+            showSubFolders(category, scroll);
         }
 
         private void onDelete() {
@@ -1109,7 +1469,7 @@ public class Main extends JFrame {
                     "Move to Recycle Bin?", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
             if (c == JOptionPane.YES_OPTION) {
                 trashSubFolder(category, subFolderName);
-                showSubFolders(category, scroll, pg);
+                showSubFolders(category, scroll);
             }
         }
     }
@@ -1118,34 +1478,31 @@ public class Main extends JFrame {
     // File actions — View + Print + Move + Delete
     // =========================================================================
     private class FileActionRenderer implements TableCellRenderer {
-        private final float fs;
+        private final JPanel panel;
 
         FileActionRenderer(float fs) {
-            this.fs = fs;
+            this.panel = buildFilePanel(fs, false, null, null, null, null, null, null);
         }
 
         @Override
         public Component getTableCellRendererComponent(
                 JTable t, Object v, boolean sel, boolean foc, int row, int col) {
-            return buildFilePanel(fs, false, null, null, null, null, null, null);
+            return panel;
         }
     }
 
     private class FileActionEditor extends AbstractCellEditor implements TableCellEditor {
-        private final float fs;
-        private final String category;
-        private final String subFolder;
+        private final JPanel panel;
         private final JScrollPane scroll;
-        private final int pg;
+        private String category;
+        private String subFolder;
         private String fileName;
 
-        FileActionEditor(float fs, String category, String subFolder,
-                         JScrollPane scroll, int pg) {
-            this.fs = fs;
-            this.category = category;
-            this.subFolder = subFolder;
+        FileActionEditor(float fs, JScrollPane scroll) {
             this.scroll = scroll;
-            this.pg = pg;
+            this.panel = buildFilePanel(fs, true,
+                    this::onView, this::onPrint, this::onRename, this::onMove, this::onDelete,
+                    this::onHistory);
         }
 
         @Override
@@ -1162,8 +1519,7 @@ public class Main extends JFrame {
         public Component getTableCellEditorComponent(
                 JTable t, Object value, boolean sel, int row, int col) {
             fileName = (String) value;
-            return buildFilePanel(fs, true, fileName,
-                    this::onView, this::onPrint, this::onRename, this::onMove, this::onDelete);
+            return panel;
         }
 
         private File resolveFile() {
@@ -1177,6 +1533,11 @@ public class Main extends JFrame {
             return f;
         }
 
+        private void onHistory() {
+            stopCellEditing();
+            showHistory(category, subFolder, fileName);
+        }
+
         private void onView() {
             stopCellEditing();
             File f = resolveFile();
@@ -1245,6 +1606,7 @@ public class Main extends JFrame {
                 // Create the category directory so it shows up in the sidebar
                 File catDir = new File(SFADSMS + File.separator + ".data" + File.separator + destCat);
                 catDir.mkdirs();
+                Fetcher.invalidate(null, null);
                 ManifestManager.markFolderChanged(destCat);
             }
 
@@ -1289,7 +1651,7 @@ public class Main extends JFrame {
             if (src == null) return;
             File destDir = new File(SFADSMS + File.separator + ".data"
                     + File.separator + destCat + File.separator + destSub);
-            destDir.mkdirs();
+            if (destDir.mkdirs()) Fetcher.invalidate(destCat, null);
             File dst = new File(destDir, fileName);
 
             if (dst.exists()) {
@@ -1303,17 +1665,17 @@ public class Main extends JFrame {
 
             Writer.removeFromMetadata(category, subFolder, fileName);
             Writer.appendToMetadata(destCat, destSub, fileName);
-            ManifestManager.markFolderChanged(destCat);
+            ManifestManager.markSubFolderChanged(destCat, destSub);
             Writer.logMoveFile(Auth.currentUser(), category, subFolder, destCat, destSub, fileName);
 
             // Refresh sidebar in case a new category was created
             refreshFolderButtons(sidebarContainer, heightMultiplier, dataPane);
-            showFiles(category, subFolder, scroll, pg);
+            showFiles(category, subFolder, scroll);
         }
 
         private void onRename() {
             stopCellEditing();
-            showRenameFileDialog(category, subFolder, fileName, scroll, pg);
+            showRenameFileDialog(category, subFolder, fileName, scroll);
         }
 
         private void onDelete() {
@@ -1326,7 +1688,7 @@ public class Main extends JFrame {
                     "Move to Recycle Bin?", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
             if (c == JOptionPane.YES_OPTION) {
                 trashFile(category, subFolder, fileName);
-                showFiles(category, subFolder, scroll, pg);
+                showFiles(category, subFolder, scroll);
             }
         }
     }
@@ -1335,7 +1697,7 @@ public class Main extends JFrame {
     // Rename file dialog
     // =========================================================================
     private void showRenameFileDialog(String category, String subFolder,
-                                      String oldFileName, JScrollPane scrollPane, int page) {
+                                      String oldFileName, JScrollPane scrollPane) {
         // Separate base name from extension so user only types the display name
         int dotIdx = oldFileName.lastIndexOf('.');
         String oldBase = dotIdx > 0 ? oldFileName.substring(0, dotIdx) : oldFileName;
@@ -1359,20 +1721,20 @@ public class Main extends JFrame {
         gbc.insets = new Insets(10, 24, 6, 24);
 
         JLabel titleLbl = new JLabel("Rename File:");
-        titleLbl.setFont(plainMainFont.deriveFont(Font.BOLD, labelSize));
+        titleLbl.setFont(UI.derive(plainMainFont, Font.BOLD, labelSize));
         titleLbl.setForeground(Color.BLACK);
         gbc.gridx = 0; gbc.gridy = 0; gbc.anchor = GridBagConstraints.WEST;
         dialog.add(titleLbl, gbc);
 
         JLabel hintLbl = new JLabel("Current:  " + oldFileName);
-        hintLbl.setFont(plainMainFont.deriveFont(Font.ITALIC, hintSize));
+        hintLbl.setFont(UI.derive(plainMainFont, Font.ITALIC, hintSize));
         hintLbl.setForeground(new Color(100, 100, 100));
         gbc.gridy = 1;
         dialog.add(hintLbl, gbc);
 
         if (!ext.isEmpty()) {
             JLabel extLbl = new JLabel("Extension  \"" + ext + "\"  will be kept automatically.");
-            extLbl.setFont(plainMainFont.deriveFont(Font.ITALIC, hintSize));
+            extLbl.setFont(UI.derive(plainMainFont, Font.ITALIC, hintSize));
             extLbl.setForeground(new Color(130, 130, 130));
             gbc.gridy = 2;
             dialog.add(extLbl, gbc);
@@ -1400,7 +1762,7 @@ public class Main extends JFrame {
             String newFileName = newBase + ext;
             renameFile(category, subFolder, oldFileName, newFileName);
             dialog.dispose();
-            showFiles(category, subFolder, scrollPane, page);
+            showFiles(category, subFolder, scrollPane);
         });
         cancelBtn.addActionListener(e -> dialog.dispose());
 
@@ -1426,7 +1788,7 @@ public class Main extends JFrame {
         // Keep metadata in sync — remove old entry, add new one
         Writer.removeFromMetadata(category, subFolder, oldFileName);
         Writer.appendToMetadata(category, subFolder, newFileName);
-        ManifestManager.markFolderChanged(category);
+        ManifestManager.markSubFolderChanged(category, subFolder);
         Writer.logRenameFile(Auth.currentUser(), category, subFolder, oldFileName, newFileName);
     }
 }
\ No newline at end of file
@@ -1,20 +1,49 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages the manifest file: ~/.SFADSMS/manifest.txt
  *
- * The manifest tracks TOP-LEVEL category folders (e.g. Grade7, Grade8).
- * true  = category has changed and needs a metadata sync
- * false = category is up-to-date
+ * The manifest tracks TOP-LEVEL category folders (e.g. Grade7, Grade8) and,
+ * inside them, the individual subfolders that changed:
+ *   category|true             = whole category needs a sync (new, drifted, overflowed)
+ *   category|false            = category itself is fine …
+ *   category|subFolder|true   = … but this one subfolder needs a sync
+ * A category is dirty if its own flag is set or any of its subfolders is,
+ * so a single new scan in Grade7 resyncs one student, not all of Grade7.
  *
- * File layout unchanged:
+ * File layout:
  *   categoryName|true
  *   categoryName|false
+ *   categoryName|subFolder|true
+ *   #end|<lineCount>          ← trailer; missing means the file is incomplete
  *
- * Count detection is now recursive — it sums files across all subfolders
- * inside a category, matching the two-level structure:
- *   .data/<category>/<subFolder>/<files>
+ * Writes are coalesced (write-behind) and go through a temp file plus an
+ * atomic rename, so a crash never leaves a truncated manifest behind.
+ *
+ * In memory every category holds an immutable State in a ConcurrentHashMap,
+ * so the EDT, FolderWatcher and Reconciler threads update it without locking.
+ * Every change takes a new version from one global, monotonically increasing
+ * sequence. A scan takes a ScanPlan (beginScan) and, when done, clears only
+ * the flags it covered whose version is not newer than the plan's token
+ * (markFolderScanned(category, plan)) — a change that lands mid-scan survives.
+ *
+ * External changes made while the app was closed are found through directory
+ * fingerprints, kept next to the manifest in manifest.fp:
+ *   category|mtime|entryCount|nameHash              ← its subfolder names
+ *   category/subFolder|mtime|entryCount|nameHash    ← its data file names
+ * A directory whose mtime still matches costs one stat and no listing. Only
+ * when it moved are the names listed (never stat'ed) and their count and
+ * order-independent hash compared, so a same-count rename is still caught.
  */
 public class ManifestManager {
 
@@ -22,45 +51,315 @@ public class ManifestManager {
             + File.separator + ".SFADSMS"
             + File.separator + "manifest.txt";
 
+    private static final String FINGERPRINTS = MANIFEST.replace("manifest.txt", "manifest.fp");
+
     private static final String DATA_DIR = System.getProperty("user.home")
             + File.separator + ".SFADSMS"
             + File.separator + ".data";
 
+    /** Per-category state; replaced, never mutated. */
+    private static final class State {
+        static final State CLEAN = new State(0, Collections.emptyMap());
+
+        final long              wholeVersion; // > 0 → whole category needs a sync
+        final Map<String, Long> subFolders;   // dirty subfolder → version
+
+        State(long wholeVersion, Map<String, Long> subFolders) {
+            this.wholeVersion = wholeVersion;
+            this.subFolders   = subFolders;
+        }
+
+        boolean dirty() {
+            return wholeVersion > 0 || !subFolders.isEmpty();
+        }
+
+        State withWhole(long version) {
+            return new State(version, subFolders);
+        }
+
+        State withSubFolder(String subFolder, long version) {
+            Map<String, Long> subs = new HashMap<>(subFolders);
+            subs.put(subFolder, version);
+            return new State(wholeVersion, Collections.unmodifiableMap(subs));
+        }
+    }
+
+    /**
+     * What one scan of a category covers: every subfolder (whole) or just
+     * the listed ones, as of sequence value {@code token}.
+     */
+    static final class ScanPlan {
+        final long        token;
+        final boolean     whole;
+        final Set<String> subFolders;
+
+        ScanPlan(long token, boolean whole, Set<String> subFolders) {
+            this.token      = token;
+            this.whole      = whole;
+            this.subFolders = subFolders;
+        }
+    }
+
+    /**
+     * What a directory looked like when it was last synced. nameHash is a sum
+     * of per-name hashes, so it ignores listing order and can be updated one
+     * name at a time as the app adds or removes files itself.
+     */
+    private static final class Fingerprint {
+        final long mtime;
+        final int  count;
+        final long nameHash;
+
+        Fingerprint(long mtime, int count, long nameHash) {
+            this.mtime    = mtime;
+            this.count    = count;
+            this.nameHash = nameHash;
+        }
+
+        static Fingerprint of(long mtime, String[] names) {
+            long h = 0;
+            for (String n : names) h += hash(n);
+            return new Fingerprint(mtime, names.length, h);
+        }
+
+        /** 64-bit FNV-1a of one name. */
+        static long hash(String name) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < name.length(); i++) {
+                h ^= name.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return h;
+        }
+
+        boolean sameNames(Fingerprint o) {
+            return o != null && count == o.count && nameHash == o.nameHash;
+        }
+
+        Fingerprint plus(String name, int sign) {
+            return new Fingerprint(mtime, count + sign, nameHash + sign * hash(name));
+        }
+    }
+
+    private static final AtomicLong SEQ = new AtomicLong();
+
     // In-memory cache — disk read happens only once at startup
-    private static Map<String, Boolean> cache = null;
+    private static volatile ConcurrentHashMap<String, State> cache = null;
+
+    // "category" or "category/subFolder" → fingerprint; loaded with the cache
+    private static volatile ConcurrentHashMap<String, Fingerprint> prints = null;
+    private static final AtomicBoolean printsChanged = new AtomicBoolean();
+
+    // Set once a full count pass has run with FolderWatcher already live
+    private static volatile boolean verifiedWhileWatching = false;
+
+    // Write-behind flushing (see flushToDisk)
+    private static final long          FLUSH_DELAY_MS      = 500;
+    private static final int           FLUSH_AFTER_CHANGES = 64;
+    private static final long          FLUSH_RETRY_MAX_MS  = 60_000;
+    private static final Object        FLUSH_LOCK          = new Object();
+    private static final Object        WRITE_LOCK          = new Object();
+    private static final AtomicInteger unflushed           = new AtomicInteger();
+    private static ScheduledFuture<?>  scheduled           = null;
+    private static long                retryDelayMs        = FLUSH_DELAY_MS; // guarded by FLUSH_LOCK
+
+    private static final ScheduledExecutorService FLUSHER =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "SFADSMS-manifest");
+                t.setDaemon(true);
+                return t;
+            });
 
-    private static Map<String, Boolean> getCache() {
-        if (cache == null) cache = loadFromDisk();
-        return cache;
+    static {
+        Runtime.getRuntime().addShutdownHook(
+                new Thread(ManifestManager::flushNow, "SFADSMS-manifest-shutdown"));
     }
 
-    private static Map<String, Boolean> loadFromDisk() {
-        Map<String, Boolean> map  = new HashMap<>();
-        File                 file = new File(MANIFEST);
+    private static ConcurrentHashMap<String, State> getCache() {
+        ConcurrentHashMap<String, State> c = cache;
+        if (c == null) {
+            synchronized (ManifestManager.class) {
+                if (cache == null) {
+                    prints = loadFingerprints();
+                    cache  = loadFromDisk();
+                }
+                c = cache;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Reads manifest.txt. A file without a matching "#end|<count>" trailer was
+     * torn by a crash mid-write (pre-atomic versions): the entries that did
+     * survive are kept but flagged true, so they are simply rescanned.
+     */
+    private static ConcurrentHashMap<String, State> loadFromDisk() {
+        ConcurrentHashMap<String, State> map  = new ConcurrentHashMap<>();
+        File                             file = new File(MANIFEST);
+        new File(MANIFEST + ".tmp").delete(); // leftover from an interrupted flush
         if (!file.exists()) return map;
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+
+        boolean complete = false;
+        int     lines    = 0;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
             String line;
             while ((line = br.readLine()) != null) {
                 String[] parts = line.split("\\|");
-                if (parts.length == 2) map.put(parts[0], parts[1].equals("true"));
+                if (parts.length == 2 && parts[0].equals("#end")) {
+                    complete = String.valueOf(lines).equals(parts[1]);
+                } else if (parts.length == 2) {
+                    lines++;
+                    long whole = parts[1].equals("true") ? SEQ.incrementAndGet() : 0;
+                    map.merge(parts[0], new State(whole, Collections.emptyMap()),
+                            (old, v) -> old.withWhole(whole));
+                } else if (parts.length == 3 && parts[2].equals("true")) {
+                    lines++;
+                    long v = SEQ.incrementAndGet();
+                    map.merge(parts[0], State.CLEAN.withSubFolder(parts[1], v),
+                            (old, x) -> old.withSubFolder(parts[1], v));
+                }
             }
         } catch (IOException e) {
             System.err.println("[Manifest] Error reading from disk: " + e.getMessage());
         }
+
+        if (!complete) {
+            System.err.println("[Manifest] Incomplete manifest — rescanning its categories");
+            map.replaceAll((k, v) -> v.withWhole(SEQ.incrementAndGet()));
+        }
+        return map;
+    }
+
+    /** Reads manifest.fp; a file without its trailer is ignored (directories get relisted). */
+    private static ConcurrentHashMap<String, Fingerprint> loadFingerprints() {
+        ConcurrentHashMap<String, Fingerprint> map  = new ConcurrentHashMap<>();
+        File                                   file = new File(FINGERPRINTS);
+        new File(FINGERPRINTS + ".tmp").delete();
+        if (!file.exists()) return map;
+
+        boolean complete = false;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\\|");
+                if (parts.length == 2 && parts[0].equals("#end")) {
+                    complete = String.valueOf(map.size()).equals(parts[1]);
+                } else if (parts.length == 4) {
+                    try {
+                        map.put(parts[0], new Fingerprint(Long.parseLong(parts[1]),
+                                Integer.parseInt(parts[2]), Long.parseUnsignedLong(parts[3], 16)));
+                    } catch (NumberFormatException ignored) {}
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Manifest] Error reading fingerprints: " + e.getMessage());
+        }
+
+        if (!complete) {
+            System.err.println("[Manifest] Incomplete fingerprints — directories will be relisted");
+            map.clear();
+        }
         return map;
     }
 
+    /**
+     * Write-behind: records that the cache changed and schedules one flush.
+     * A burst of changes (e.g. a bulk move) is coalesced into a single write
+     * FLUSH_DELAY_MS after the first change, or immediately once
+     * FLUSH_AFTER_CHANGES changes are waiting.
+     */
     private static void flushToDisk() {
-        if (cache == null) return;
-        File parent = new File(MANIFEST).getParentFile();
-        if (parent != null && !parent.exists()) parent.mkdirs();
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(MANIFEST))) {
-            for (Map.Entry<String, Boolean> e : cache.entrySet()) {
-                bw.write(e.getKey() + "|" + e.getValue());
-                bw.newLine();
+        int waiting = unflushed.incrementAndGet();
+        synchronized (FLUSH_LOCK) {
+            if (waiting >= FLUSH_AFTER_CHANGES) {
+                if (scheduled != null) scheduled.cancel(false);
+                scheduled = FLUSHER.schedule(ManifestManager::flushNow, 0, TimeUnit.MILLISECONDS);
+            } else if (scheduled == null || scheduled.isDone()) {
+                scheduled = FLUSHER.schedule(ManifestManager::flushNow,
+                        FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Writes pending changes now (flusher thread, shutdown hook).
+     * Fingerprints never schedule a flush of their own; they ride along with
+     * the next manifest write, or the shutdown flush. A failed write is
+     * tried again later (retryLater).
+     */
+    static void flushNow() {
+        synchronized (WRITE_LOCK) {
+            boolean written = true;
+            ConcurrentHashMap<String, Fingerprint> p = prints;
+            if (p != null && printsChanged.getAndSet(false)) written = writeFingerprints(p);
+
+            ConcurrentHashMap<String, State> c = cache;
+            if (c != null && unflushed.getAndSet(0) > 0) written &= writeManifest(c);
+
+            synchronized (FLUSH_LOCK) {
+                if (written) retryDelayMs = FLUSH_DELAY_MS;
             }
+            if (!written) retryLater();
+        }
+    }
+
+    private static boolean writeManifest(Map<String, State> c) {
+        List<String> lines = new ArrayList<>();
+        c.forEach((k, v) -> {
+            lines.add(k + "|" + (v.wholeVersion > 0));
+            for (String sub : v.subFolders.keySet()) lines.add(k + "|" + sub + "|true");
+        });
+        try {
+            FileHandler.writeAtomically(new File(MANIFEST), bw -> {
+                for (String line : lines) {
+                    bw.write(line);
+                    bw.newLine();
+                }
+                bw.write("#end|" + lines.size());
+                bw.newLine();
+            });
+            return true;
         } catch (IOException e) {
             System.err.println("[Manifest] Error writing to disk: " + e.getMessage());
+            unflushed.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Schedules another flush after a failed write, waiting twice as long as
+     * the last time (up to FLUSH_RETRY_MAX_MS), so a disk that stays full or
+     * locked is not hammered but the changes still reach it once it recovers.
+     */
+    private static void retryLater() {
+        synchronized (FLUSH_LOCK) {
+            retryDelayMs = Math.min(retryDelayMs * 2, FLUSH_RETRY_MAX_MS);
+            if (scheduled != null) scheduled.cancel(false);
+            scheduled = FLUSHER.schedule(ManifestManager::flushNow, retryDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static boolean writeFingerprints(Map<String, Fingerprint> p) {
+        List<String> lines = new ArrayList<>();
+        p.forEach((k, f) -> lines.add(k + "|" + f.mtime + "|" + f.count + "|"
+                + Long.toHexString(f.nameHash)));
+        try {
+            FileHandler.writeAtomically(new File(FINGERPRINTS), bw -> {
+                for (String line : lines) {
+                    bw.write(line);
+                    bw.newLine();
+                }
+                bw.write("#end|" + lines.size());
+                bw.newLine();
+            });
+            return true;
+        } catch (IOException e) {
+            System.err.println("[Manifest] Error writing fingerprints: " + e.getMessage());
+            printsChanged.set(true);
+            return false;
         }
     }
 
@@ -68,122 +367,214 @@ public class ManifestManager {
 
     /** Top-level category directories on disk. */
     private static Set<String> getCategoriesOnDisk() {
-        Set<String> folders = new HashSet<>();
-        File[] items = new File(DATA_DIR).listFiles(File::isDirectory);
-        if (items != null) for (File f : items) folders.add(f.getName());
-        return folders;
+        DiskListing.Dir data = DiskListing.read(null, null);
+        return data == null ? new HashSet<>() : new HashSet<>(Arrays.asList(data.directories()));
     }
 
-    // ── Count helpers (recursive over subfolders) ─────────────────────────────
+    // ── Fingerprints ──────────────────────────────────────────────────────────
+
+    private static ConcurrentHashMap<String, Fingerprint> getPrints() {
+        getCache();
+        return prints;
+    }
+
+    private static String printKey(String category, String subFolder) {
+        return subFolder == null ? category : category + "/" + subFolder;
+    }
 
     /**
-     * Total data files across all subfolders of a category.
-     * Excludes each subfolder's own <subFolder>data.txt metadata file.
-     *
-     * .data/<category>/<subFolder1>/file1.pdf  ← counted
-     * .data/<category>/<subFolder1>/subFolder1data.txt ← NOT counted
+     * Records what a directory looked like when it was synced: its subfolder
+     * names (subFolder == null) or its data file names. Read mtime BEFORE
+     * listing, so a change racing the listing still moves it.
      */
-    private static int countFilesOnDisk(String category) {
-        File catDir = new File(DATA_DIR + File.separator + category);
-        if (!catDir.exists()) return 0;
-        File[] subDirs = catDir.listFiles(File::isDirectory);
-        if (subDirs == null) return 0;
+    static void recordFingerprint(String category, String subFolder, long mtime, String[] names) {
+        getPrints().put(printKey(category, subFolder), Fingerprint.of(mtime, names));
+        printsChanged.set(true);
+    }
 
-        int total = 0;
-        for (File sub : subDirs) {
-            String metaName = sub.getName() + "data.txt";
-            File[] files = sub.listFiles(f -> f.isFile() && !f.getName().equals(metaName));
-            if (files != null) total += files.length;
-        }
-        return total;
+    /** Keeps a subfolder fingerprint in step with a file the app itself added. */
+    static void fingerprintAdded(String category, String subFolder, String fileName) {
+        adjustFingerprint(printKey(category, subFolder), fileName, +1);
+    }
+
+    /** Keeps a subfolder fingerprint in step with a file the app itself removed. */
+    static void fingerprintRemoved(String category, String subFolder, String fileName) {
+        adjustFingerprint(printKey(category, subFolder), fileName, -1);
+    }
+
+    /** Carries a subfolder fingerprint over to its new name and/or category. */
+    static void moveFingerprint(String fromCategory, String subFolder,
+                                String toCategory, String newName) {
+        Fingerprint f = getPrints().remove(printKey(fromCategory, subFolder));
+        if (f != null) prints.put(printKey(toCategory, newName), f);
+        printsChanged.set(true);
+    }
+
+    /** Forgets a subfolder fingerprint, or a category's and all its subfolders' (subFolder == null). */
+    static void dropFingerprints(String category, String subFolder) {
+        if (subFolder != null) getPrints().remove(printKey(category, subFolder));
+        else getPrints().keySet().removeIf(k -> k.equals(category) || k.startsWith(category + "/"));
+        printsChanged.set(true);
+    }
+
+    // The stale mtime is kept on purpose: at the next start the names are
+    // relisted once, match the adjusted count and hash, and the mtime is renewed.
+    private static void adjustFingerprint(String key, String name, int sign) {
+        if (getPrints().computeIfPresent(key, (k, f) -> f.plus(name, sign)) != null)
+            printsChanged.set(true);
     }
 
     /**
-     * Total metadata entries across all subfolders of a category.
-     * Reads each <subFolder>data.txt and counts lines.
+     * Checks one indexed category against its fingerprints and flags every
+     * subfolder that was added, removed or changed on disk since it was
+     * synced. A directory whose mtime matches is trusted without listing it.
+     * Returns true if a flag was set.
      */
-    private static int countEntriesInTxt(String category) {
-        File catDir = new File(DATA_DIR + File.separator + category);
-        if (!catDir.exists()) return 0;
-        File[] subDirs = catDir.listFiles(File::isDirectory);
-        if (subDirs == null) return 0;
+    private static boolean verifyFingerprints(String category) {
+        ConcurrentHashMap<String, Fingerprint> p       = getPrints();
+        Set<String>                            subs    = new HashSet<>(Arrays.asList(Catalog.subFolders(category)));
+        boolean                                changed = false;
+
+        // One pass yields the category's mtime and every subfolder's mtime
+        DiskListing.Dir catDir = DiskListing.read(category, null);
+        if (catDir == null) return false; // removed meanwhile — syncManifest drops it next pass
+
+        Fingerprint old   = p.get(category);
+        long        mtime = catDir.modified;
+        if (old == null || old.mtime != mtime) {
+            String[]    names = catDir.directories();
+            Fingerprint now   = Fingerprint.of(mtime, names);
 
-        int total = 0;
-        for (File sub : subDirs) {
-            File txt = new File(sub, sub.getName() + "data.txt");
-            if (!txt.exists()) continue;
-            try (BufferedReader br = new BufferedReader(new FileReader(txt))) {
-                while (br.readLine() != null) total++;
-            } catch (IOException e) { /* treat as 0 */ }
+            if (!now.sameNames(old)) {
+                Set<String> onDisk = new HashSet<>(Arrays.asList(names));
+                for (String n : names) if (!subs.contains(n)) changed |= setSubFolder(category, n);
+                for (String s : subs)  if (!onDisk.contains(s)) changed |= setSubFolder(category, s);
+                subs.retainAll(onDisk);
+            }
+            p.put(category, now);
+            printsChanged.set(true);
         }
-        return total;
+
+        State st = getCache().get(category);
+        for (String sub : subs) {
+            if (st != null && st.subFolders.containsKey(sub)) continue; // already flagged
+            String      key = printKey(category, sub);
+            Fingerprint f   = p.get(key);
+            DiskListing.Item item = catDir.get(sub);
+            long             m    = item == null ? 0L : item.modified;
+            if (f != null && f.mtime == m) continue;
+
+            Fingerprint now = Fingerprint.of(m, Fetcher.listFolderData(category, sub));
+            if (now.sameNames(f)) {
+                p.put(key, now);       // touched but same names — just renew the mtime
+                printsChanged.set(true);
+            } else {
+                changed |= setSubFolder(category, sub);
+            }
+        }
+        return changed;
     }
 
     // ── Sync ─────────────────────────────────────────────────────────────────
 
     /**
      * Reconciles cache with disk reality:
-     * 1. Adds newly created categories (marked true = needs scan).
+     * 1. Adds newly created categories (whole category needs scan).
      * 2. Removes categories deleted from disk.
-     * 3. For categories currently marked false, compares recursive file count
-     *    on disk vs total metadata entries — drift means external change.
+     * 3. A category the Catalog has never indexed is flagged whole.
+     * 4. For every other category, checks directory fingerprints and flags
+     *    just the subfolders that changed on disk (verifyFingerprints).
+     *    Once FolderWatcher is live, step 4 runs only on the first sync.
      *
      * Only flushes to disk if something actually changed.
+     * Synchronized only so two passes never walk the disk at the same time —
+     * marking folders changed/scanned never waits on it.
      */
-    static void syncManifest() {
-        Map<String, Boolean> manifest      = getCache();
-        Set<String>          diskCategories = getCategoriesOnDisk();
-        boolean              changed       = false;
+    static synchronized void syncManifest() {
+        ConcurrentHashMap<String, State> manifest       = getCache();
+        Set<String>                      diskCategories = getCategoriesOnDisk();
+        boolean                          changed        = false;
 
         // Add new categories
         for (String cat : diskCategories) {
-            if (!manifest.containsKey(cat)) {
-                manifest.put(cat, true);
+            if (manifest.putIfAbsent(cat, State.CLEAN.withWhole(SEQ.incrementAndGet())) == null)
                 changed = true;
-            }
         }
 
         // Remove deleted categories
-        Iterator<String> it = manifest.keySet().iterator();
-        while (it.hasNext()) {
-            if (!diskCategories.contains(it.next())) { it.remove(); changed = true; }
-        }
+        if (manifest.keySet().retainAll(diskCategories)) changed = true;
+
+        if (Catalog.retainCategories(diskCategories)) Fetcher.invalidate(null, null);
+
+        // While FolderWatcher is live it flags changes as they happen; the
+        // fingerprint check is only needed once per session to catch changes
+        // made while the app was closed, or when no watcher could be started.
+        boolean verify = !verifiedWhileWatching || !FolderWatcher.isWatching();
+        if (verify && FolderWatcher.isWatching()) verifiedWhileWatching = true;
 
-        // Detect external file additions/removals via count comparison
         for (String cat : diskCategories) {
-            if (Boolean.FALSE.equals(manifest.get(cat))) {
-                int onDisk = countFilesOnDisk(cat);
-                int inTxt  = countEntriesInTxt(cat);
-                if (onDisk != inTxt) {
-                    manifest.put(cat, true);   // drift → needs rescan
-                    changed = true;
-                }
+            State st = manifest.get(cat);
+            if (st == null || st.wholeVersion > 0) continue;
+            if (!Catalog.hasCategory(cat)) {
+                changed |= setWhole(cat);   // never indexed → needs full scan
+                continue;
             }
+            if (verify) changed |= verifyFingerprints(cat);
         }
+        if (getPrints().keySet().removeIf(k -> !diskCategories.contains(k.split("/", 2)[0])))
+            printsChanged.set(true);
 
         if (changed) flushToDisk();
     }
 
     // ── Public API ────────────────────────────────────────────────────────────
 
-    /** Mark a category as needing a metadata sync. */
+    /**
+     * Mark a whole category as needing a metadata sync. Always takes a new
+     * version, even if already dirty, so a scan in flight cannot clear it.
+     */
     static void markFolderChanged(String category) {
         if (category == null || category.isBlank()) return;
-        Map<String, Boolean> manifest = getCache();
-        if (!Boolean.TRUE.equals(manifest.get(category))) {
-            manifest.put(category, true);
-            flushToDisk();
-        }
+        if (setWhole(category)) flushToDisk();
     }
 
-    /** Mark a category as up-to-date (no sync needed). */
-    static void markFolderScanned(String category) {
+    /** Mark one subfolder as needing a metadata sync — only it gets rescanned. */
+    static void markSubFolderChanged(String category, String subFolder) {
         if (category == null || category.isBlank()) return;
-        Map<String, Boolean> manifest = getCache();
-        if (!Boolean.FALSE.equals(manifest.get(category))) {
-            manifest.put(category, false);
-            flushToDisk();
-        }
+        if (subFolder == null || subFolder.isBlank()) { markFolderChanged(category); return; }
+        if (setSubFolder(category, subFolder)) flushToDisk();
+    }
+
+    /**
+     * What a scan of this category has to cover right now; pass it back to
+     * markFolderScanned(category, plan) when the scan is done.
+     */
+    static ScanPlan beginScan(String category) {
+        long  token = SEQ.get();
+        State st    = getCache().getOrDefault(category, State.CLEAN);
+        return new ScanPlan(token, st.wholeVersion > 0, new HashSet<>(st.subFolders.keySet()));
+    }
+
+    /**
+     * Clears the flags the plan covered — only those not changed again after
+     * the plan was taken. Returns true if the category is now fully clean.
+     */
+    static boolean markFolderScanned(String category, ScanPlan plan) {
+        if (category == null || category.isBlank()) return false;
+        boolean[] cleared = {false};
+        State now = getCache().computeIfPresent(category, (k, old) -> {
+            long whole = plan.whole && old.wholeVersion <= plan.token ? 0 : old.wholeVersion;
+            Map<String, Long> subs = new HashMap<>();
+            for (Map.Entry<String, Long> e : old.subFolders.entrySet()) {
+                boolean covered = plan.whole || plan.subFolders.contains(e.getKey());
+                if (!covered || e.getValue() > plan.token) subs.put(e.getKey(), e.getValue());
+            }
+            if (whole == old.wholeVersion && subs.size() == old.subFolders.size()) return old;
+            cleared[0] = true;
+            return new State(whole, Collections.unmodifiableMap(subs));
+        });
+        if (cleared[0]) flushToDisk();
+        return now != null && !now.dirty();
     }
 
     /**
@@ -193,33 +584,68 @@ public class ManifestManager {
     static List<String> getFoldersNeedingUpdate() {
         syncManifest();
         List<String> list = new ArrayList<>();
-        for (Map.Entry<String, Boolean> e : getCache().entrySet())
-            if (e.getValue()) list.add(e.getKey());
+        getCache().forEach((k, v) -> { if (v.dirty()) list.add(k); });
         return list;
     }
 
     /** Rename a category in the manifest cache (call after renaming the directory). */
     static void renameCategory(String oldName, String newName) {
         if (oldName == null || newName == null) return;
-        Map<String, Boolean> manifest = getCache();
-        Boolean val = manifest.remove(oldName);
-        manifest.put(newName, val != null ? val : false);
+        ConcurrentHashMap<String, State> manifest = getCache();
+        State old = manifest.remove(oldName);
+        manifest.put(newName, old != null ? old : State.CLEAN);
+
+        ConcurrentHashMap<String, Fingerprint> p = getPrints();
+        for (String key : new ArrayList<>(p.keySet())) {
+            if (!key.equals(oldName) && !key.startsWith(oldName + "/")) continue;
+            Fingerprint f = p.remove(key);
+            if (f != null) p.put(newName + key.substring(oldName.length()), f);
+        }
+        printsChanged.set(true);
         flushToDisk();
     }
 
     /** Remove a category from the manifest cache (call after deleting the directory). */
     static void removeCategory(String category) {
         if (category == null) return;
+        dropFingerprints(category, null);
         if (getCache().remove(category) != null) flushToDisk();
     }
 
-    /** Read-only view — no disk hit. */
+    /** Read-only snapshot of category dirty flags — no disk hit. */
     static Map<String, Boolean> readManifest() {
-        return Collections.unmodifiableMap(getCache());
+        Map<String, Boolean> snapshot = new HashMap<>();
+        getCache().forEach((k, v) -> snapshot.put(k, v.dirty()));
+        return Collections.unmodifiableMap(snapshot);
     }
 
-    /** Force full cache reload from disk. */
+    /** Force full cache reload from disk (pending changes are written first). */
     static void invalidateCache() {
-        cache = null;
+        flushNow();
+        synchronized (ManifestManager.class) { cache = null; }
+    }
+
+    /** Flags the whole category with a fresh version; true if it was not flagged before. */
+    private static boolean setWhole(String category) {
+        long      v       = SEQ.incrementAndGet();
+        boolean[] changed = {false};
+        getCache().compute(category, (k, old) -> {
+            State base = old != null ? old : State.CLEAN;
+            changed[0] = base.wholeVersion == 0;
+            return base.withWhole(v);
+        });
+        return changed[0];
+    }
+
+    /** Flags one subfolder with a fresh version; true if it was not flagged before. */
+    private static boolean setSubFolder(String category, String subFolder) {
+        long      v       = SEQ.incrementAndGet();
+        boolean[] changed = {false};
+        getCache().compute(category, (k, old) -> {
+            State base = old != null ? old : State.CLEAN;
+            changed[0] = !base.dirty() || !base.subFolders.containsKey(subFolder);
+            return base.withSubFolder(subFolder, v);
+        });
+        return changed[0];
     }
-}
\ No newline at end of file
+}
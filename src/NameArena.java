@@ -0,0 +1,130 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only store of names as UTF-8 bytes in one shared array, addressed
+ * by slot number.
+ *
+ * A name costs its UTF-8 length plus one int offset, instead of a String and
+ * its backing array (two object headers, a hash field and padding) — several
+ * times smaller for the short ASCII file names an archive is made of. Names
+ * are compared, hashed and matched against lookup keys on the bytes; a
+ * String is only built when get() asks for one.
+ *
+ * Slots are never reused: callers track which ones are dead and copy the
+ * live ones into a fresh arena (copyFrom) when enough of it is garbage.
+ * Not thread-safe — the owner (Catalog, NameIndex) locks around it.
+ */
+final class NameArena {
+
+    private byte[] bytes;
+    private int    used  = 0;
+    private int[]  start;      // slot → first byte; start[count] == used
+    private int    count = 0;
+
+    NameArena() {
+        this(64, 1024);
+    }
+
+    NameArena(int slots, int byteCapacity) {
+        start = new int[Math.max(2, slots + 1)];
+        bytes = new byte[Math.max(16, byteCapacity)];
+    }
+
+    /** UTF-8 form of a lookup key, for the byte-wise methods below. */
+    static byte[] utf8(String name) {
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Appends a name and returns its slot. */
+    int add(String name) {
+        return add(utf8(name), 0, -1);
+    }
+
+    /** Appends UTF-8 bytes (len < 0: the whole array) and returns their slot. */
+    int add(byte[] utf8, int from, int len) {
+        if (len < 0) len = utf8.length - from;
+        if (count + 2 > start.length) start = Arrays.copyOf(start, start.length * 2);
+        if (used + len > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, used + len));
+        System.arraycopy(utf8, from, bytes, used, len);
+        start[count] = used;
+        used += len;
+        start[++count] = used;
+        return count - 1;
+    }
+
+    /** Appends another arena's slot, without decoding it. */
+    int copyFrom(NameArena other, int slot) {
+        return add(other.bytes, other.start[slot], other.length(slot));
+    }
+
+    int size() {
+        return count;
+    }
+
+    /** Bytes held (live and dead names). */
+    int bytesUsed() {
+        return used;
+    }
+
+    int length(int slot) {
+        return start[slot + 1] - start[slot];
+    }
+
+    String get(int slot) {
+        return new String(bytes, start[slot], length(slot), StandardCharsets.UTF_8);
+    }
+
+    boolean equalsAt(int slot, byte[] key) {
+        return compareAt(slot, key) == 0;
+    }
+
+    /**
+     * Unsigned byte order of a slot against a key — for UTF-8 this is code
+     * point order, the same as String.compareTo outside surrogate pairs.
+     */
+    int compareAt(int slot, byte[] key) {
+        int s = start[slot], len = length(slot), n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            int d = (bytes[s + i] & 0xFF) - (key[i] & 0xFF);
+            if (d != 0) return d;
+        }
+        return len - key.length;
+    }
+
+    /** FNV-1a of a slot's bytes; equal to hash(key) for an equal key. */
+    int hashAt(int slot) {
+        return hash(bytes, start[slot], length(slot));
+    }
+
+    static int hash(byte[] key) {
+        return hash(key, 0, key.length);
+    }
+
+    private static int hash(byte[] b, int from, int len) {
+        int h = 0x811C9DC5;
+        for (int i = from; i < from + len; i++) {
+            h ^= b[i] & 0xFF;
+            h *= 0x01000193;
+        }
+        return h;
+    }
+
+    /** Writes a slot as (length, bytes) — read back with read(). */
+    void write(DataOutputStream out, int slot) throws IOException {
+        out.writeShort(length(slot));
+        out.write(bytes, start[slot], length(slot));
+    }
+
+    /** Reads one name written by write() into a new slot. */
+    int read(DataInputStream in) throws IOException {
+        int    len = in.readUnsignedShort();
+        byte[] b   = new byte[len];
+        in.readFully(b);
+        return add(b, 0, len);
+    }
+}
@@ -0,0 +1,493 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Trigram index over every category, subfolder and file name in the Catalog:
+ * ~/.SFADSMS/names.idx
+ *
+ * Each name is a document; every three-character window of its lower-cased
+ * form points at the documents containing it. A substring query of three or
+ * more characters intersects the posting lists of its own trigrams and only
+ * checks the few names that survive, instead of lower-casing and scanning
+ * every name in a listing.
+ *
+ * The index is kept in step by Catalog itself — every mutation (live or
+ * journal replay) goes through it — and is written next to each Catalog
+ * snapshot, stamped with the snapshot's generation:
+ *   "SFNI" | version | generation | docCount
+ *   docCount × (parent, nameLength, UTF-8 name)   parent = -1 for a category
+ *   trigramCount × (trigram, count, count × delta-encoded doc id)
+ * A file whose generation does not match the snapshot is rebuilt from the
+ * Catalog instead of being trusted.
+ *
+ * Names are held as UTF-8 bytes in a NameArena (doc id = arena slot) and
+ * found by (parent, name) through one open-addressing table of doc ids, so
+ * the index keeps no String or boxed key per name; only the directories
+ * list their children.
+ *
+ * Removed names are only tombstoned; the postings are rebuilt once
+ * tombstones outnumber live names.
+ */
+public class NameIndex {
+
+    private static final String INDEX = System.getProperty("user.home")
+            + File.separator + ".SFADSMS"
+            + File.separator + "names.idx";
+
+    private static final int MAGIC   = 0x53464E49; // "SFNI"
+    private static final int VERSION = 2;
+
+    private static final int ROOT = -1; // parent of a category
+    private static final int DEAD = -2; // parent of a removed doc
+
+    // lookup table slots
+    private static final int EMPTY = -1;
+    private static final int GONE  = -2;
+
+    /** Growable, ascending list of doc ids. */
+    private static final class IntList {
+        int[] ids = new int[4];
+        int   size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void remove(int id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) return;
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            size--;
+        }
+    }
+
+    // doc id → name (arena slot) and parent doc (ROOT for a category, DEAD once removed)
+    private static NameArena names   = new NameArena(1024, 16 * 1024);
+    private static int[]     parents = new int[1024];
+    private static int       docs    = 0;
+    private static int       dead    = 0;
+
+    // (parent, name) → doc, open addressing; and dir doc (or ROOT) → its children
+    private static int[] table     = emptyTable(2048);
+    private static int   tableUsed = 0;
+    private static final HashMap<Integer, IntList> children = new HashMap<>();
+    private static final HashMap<Long, IntList>    postings = new HashMap<>();
+
+    // ── Maintenance (called by Catalog, under its lock) ───────────────────────
+
+    /** Adds a name; subFolder/file null index the category or subfolder itself. Idempotent. */
+    static synchronized void add(String category, String subFolder, String file) {
+        int cat = child(ROOT, category);
+        if (subFolder == null) return;
+        int sub = child(cat, subFolder);
+        if (file == null) return;
+        child(sub, file);
+    }
+
+    /** Removes a name and everything below it; subFolder/file null remove the whole directory. */
+    static synchronized void remove(String category, String subFolder, String file) {
+        int id = find(category, subFolder);
+        if (id >= 0 && file != null) id = lookup(id, file);
+        if (id < 0) return;
+        IntList siblings = children.get(parents[id]);
+        if (siblings != null) siblings.remove(id);
+        drop(id);
+        compactIfSparse();
+    }
+
+    /** Re-indexes a subfolder (and its files) under a new name and/or category. */
+    static synchronized void moveSubFolder(String fromCategory, String subFolder,
+                                           String toCategory, String newName) {
+        List<String> files = fileNames(fromCategory, subFolder);
+        if (files == null) return;
+        remove(fromCategory, subFolder, null);
+        remove(toCategory, newName, null);
+        add(toCategory, newName, null);
+        for (String f : files) add(toCategory, newName, f);
+    }
+
+    /** Re-indexes a category and everything inside it under a new name. */
+    static synchronized void renameCategory(String oldName, String newName) {
+        int cat = lookup(ROOT, oldName);
+        if (cat < 0) return;
+        Map<String, List<String>> subs = new LinkedHashMap<>();
+        IntList kids = children.get(cat);
+        if (kids != null)
+            for (int i = 0; i < kids.size; i++) {
+                String sub = names.get(kids.ids[i]);
+                subs.put(sub, fileNames(oldName, sub));
+            }
+        remove(oldName, null, null);
+        add(newName, null, null);
+        subs.forEach((sub, files) -> {
+            add(newName, sub, null);
+            for (String f : files) add(newName, sub, f);
+        });
+    }
+
+    /** Forgets everything — Catalog re-adds its contents when the file cannot be used. */
+    static synchronized void clear() {
+        names     = new NameArena(1024, 16 * 1024);
+        parents   = new int[1024];
+        docs      = 0;
+        dead      = 0;
+        table     = emptyTable(2048);
+        tableUsed = 0;
+        children.clear();
+        postings.clear();
+    }
+
+    // ── Queries ───────────────────────────────────────────────────────────────
+
+    /**
+     * Names inside one directory that contain the query, case-insensitively:
+     * categories (category == null), a category's subfolders (subFolder == null)
+     * or a subfolder's files. Unsorted.
+     * Returns null when the index cannot answer — a query shorter than three
+     * characters or a directory it does not hold — so the caller scans instead.
+     * For categories, the caller checks holdsAll() on the listing first: the
+     * index alone cannot tell whether one on disk is missing from it.
+     */
+    static synchronized String[] search(String category, String subFolder, String query) {
+        if (query.length() < 3) return null;
+        int scope = category == null ? ROOT : find(category, subFolder);
+        if (category != null && scope < 0) return null;
+
+        String       q   = query.toLowerCase(Locale.ROOT);
+        List<String> out = new ArrayList<>();
+        for (int id : candidates(q)) {
+            if (parents[id] != scope) continue;
+            String name = names.get(id);
+            if (containsFolded(name, q)) out.add(name);
+        }
+        return out.toArray(new String[0]);
+    }
+
+    /**
+     * Every category, subfolder and file whose name contains the query (3+
+     * characters), as {category, subFolder|null, file|null} hits — at most
+     * {@code limit} of them. The hits are collected under the lock and handed
+     * back, so the caller deals with them without holding up Catalog updates.
+     * Returns null if the query is too short for the index.
+     */
+    static synchronized List<String[]> searchAll(String query, int limit) {
+        if (query.length() < 3) return null;
+        String         q   = query.toLowerCase(Locale.ROOT);
+        List<String[]> out = new ArrayList<>();
+        for (int id : candidates(q)) {
+            if (out.size() == limit) break;
+            int parent = parents[id];
+            if (parent == DEAD) continue;
+            String name = names.get(id);
+            if (!containsFolded(name, q)) continue;
+            if (parent == ROOT)               out.add(new String[]{name, null, null});
+            else if (parents[parent] == ROOT) out.add(new String[]{names.get(parent), name, null});
+            else out.add(new String[]{names.get(parents[parent]), names.get(parent), name});
+        }
+        return out;
+    }
+
+    /** True if the category is indexed (known to the Catalog). */
+    static synchronized boolean holds(String category) {
+        return lookup(ROOT, category) >= 0;
+    }
+
+    /** True if every one of the categories is indexed. */
+    static synchronized boolean holdsAll(String[] categories) {
+        for (String c : categories) if (lookup(ROOT, c) < 0) return false;
+        return true;
+    }
+
+    /** Doc ids whose names hold every trigram of q (q already lower-cased, 3+ chars). */
+    private static int[] candidates(String q) {
+        List<IntList> lists = new ArrayList<>();
+        Set<Long>     seen  = new HashSet<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            long key = trigram(q.charAt(i), q.charAt(i + 1), q.charAt(i + 2));
+            if (!seen.add(key)) continue;
+            IntList l = postings.get(key);
+            if (l == null) return new int[0];
+            lists.add(l);
+        }
+        lists.sort(Comparator.comparingInt(l -> l.size));
+
+        IntList smallest = lists.get(0);
+        int[]   out      = new int[smallest.size];
+        int     n        = 0;
+        outer:
+        for (int i = 0; i < smallest.size; i++) {
+            int id = smallest.ids[i];
+            for (int j = 1; j < lists.size(); j++)
+                if (!lists.get(j).contains(id)) continue outer;
+            out[n++] = id;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static boolean containsFolded(String name, String q) {
+        int last = name.length() - q.length();
+        outer:
+        for (int i = 0; i <= last; i++) {
+            for (int j = 0; j < q.length(); j++)
+                if (Character.toLowerCase(name.charAt(i + j)) != q.charAt(j)) continue outer;
+            return true;
+        }
+        return false;
+    }
+
+    // ── Persistence ───────────────────────────────────────────────────────────
+
+    /**
+     * Loads names.idx if it was written for this Catalog generation.
+     * Returns false (index left empty) when it is missing, stale or unreadable.
+     */
+    static synchronized boolean load(long generation) {
+        clear();
+        File file = new File(INDEX);
+        if (!file.exists()) return false;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readLong() != generation) return false;
+
+            int count = in.readInt();
+            names   = new NameArena(count, count * 16);
+            parents = new int[Math.max(1024, count)];
+            table   = emptyTable(tableSizeFor(count));
+            for (int id = 0; id < count; id++) {
+                int parent = in.readInt();
+                names.read(in);
+                parents[id] = parent;
+                link(id);
+                docs = id + 1;
+            }
+
+            int trigrams = in.readInt();
+            for (int t = 0; t < trigrams; t++) {
+                long    key = in.readLong();
+                int     n   = in.readInt();
+                IntList l   = new IntList();
+                l.ids = new int[Math.max(4, n)];
+                int id = 0;
+                for (int i = 0; i < n; i++) {
+                    id += readVarInt(in);
+                    l.ids[i] = id;
+                }
+                l.size = n;
+                postings.put(key, l);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[NameIndex] Unusable index, rebuilding: " + e.getMessage());
+            clear();
+            return false;
+        }
+    }
+
+    /** Writes the index for the given Catalog generation (tombstones are dropped first). */
+    static synchronized void save(long generation) {
+        if (dead > 0) rebuildPostings();
+        try {
+            FileHandler.writeAtomicallyData(new File(INDEX), out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(generation);
+                out.writeInt(docs);
+                for (int id = 0; id < docs; id++) {
+                    out.writeInt(parents[id]);
+                    names.write(out, id);
+                }
+                out.writeInt(postings.size());
+                for (Map.Entry<Long, IntList> e : postings.entrySet()) {
+                    IntList l = e.getValue();
+                    out.writeLong(e.getKey());
+                    out.writeInt(l.size);
+                    int prev = 0;
+                    for (int i = 0; i < l.size; i++) {
+                        writeVarInt(out, l.ids[i] - prev);
+                        prev = l.ids[i];
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("[NameIndex] Error writing to disk: " + e.getMessage());
+        }
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────────
+
+    /** The doc for a name under a parent, created if it is not there yet. */
+    private static int child(int parent, String name) {
+        int id = lookup(parent, name);
+        return id >= 0 ? id : newDoc(name, parent);
+    }
+
+    private static int newDoc(String name, int parent) {
+        int id = names.add(name);
+        if (id == parents.length) parents = Arrays.copyOf(parents, id * 2);
+        parents[id] = parent;
+        link(id);
+        docs = id + 1;
+        indexTrigrams(name, id);
+        return id;
+    }
+
+    private static void indexTrigrams(String name, int id) {
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            long key = trigram(Character.toLowerCase(name.charAt(i)),
+                    Character.toLowerCase(name.charAt(i + 1)),
+                    Character.toLowerCase(name.charAt(i + 2)));
+            if (seen.add(key)) postings.computeIfAbsent(key, k -> new IntList()).add(id);
+        }
+    }
+
+    private static long trigram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /** The category (subFolder == null) or subfolder doc, or -1. */
+    private static int find(String category, String subFolder) {
+        int cat = lookup(ROOT, category);
+        return cat < 0 || subFolder == null ? cat : lookup(cat, subFolder);
+    }
+
+    private static List<String> fileNames(String category, String subFolder) {
+        int sub = find(category, subFolder);
+        if (sub < 0) return null;
+        List<String> out   = new ArrayList<>();
+        IntList      files = children.get(sub);
+        if (files != null) for (int i = 0; i < files.size; i++) out.add(names.get(files.ids[i]));
+        return out;
+    }
+
+    /** Tombstones a doc and everything below it. */
+    private static void drop(int id) {
+        IntList kids = children.remove(id);
+        if (kids != null) for (int i = 0; i < kids.size; i++) drop(kids.ids[i]);
+        if (parents[id] != DEAD) {
+            unlink(id);
+            parents[id] = DEAD;
+            dead++;
+        }
+    }
+
+    // ── (parent, name) lookup table ───────────────────────────────────────────
+
+    private static int[] emptyTable(int size) {
+        int[] t = new int[size];
+        Arrays.fill(t, EMPTY);
+        return t;
+    }
+
+    /** Power of two keeping the table at most half full for n docs. */
+    private static int tableSizeFor(int n) {
+        int size = 2048;
+        while (size < n * 2) size <<= 1;
+        return size;
+    }
+
+    private static int slotHash(int parent, int nameHash) {
+        int h = nameHash * 31 + parent;
+        return h ^ (h >>> 16);
+    }
+
+    /** The live doc with this name under this parent, or -1. */
+    private static int lookup(int parent, String name) {
+        byte[] key  = NameArena.utf8(name);
+        int    mask = table.length - 1;
+        for (int i = slotHash(parent, NameArena.hash(key)) & mask; ; i = (i + 1) & mask) {
+            int id = table[i];
+            if (id == EMPTY) return -1;
+            if (id >= 0 && parents[id] == parent && names.equalsAt(id, key)) return id;
+        }
+    }
+
+    /** Enters a new live doc (id == docs, not counted yet) into the table and its parent's child list. */
+    private static void link(int id) {
+        if ((tableUsed + 1) * 2 > table.length) rehash(tableSizeFor(docs - dead + 1));
+        int mask = table.length - 1;
+        int i    = slotHash(parents[id], names.hashAt(id)) & mask;
+        while (table[i] >= 0) i = (i + 1) & mask;
+        if (table[i] == EMPTY) tableUsed++;
+        table[i] = id;
+        children.computeIfAbsent(parents[id], k -> new IntList()).add(id);
+    }
+
+    /** Takes a doc out of the table (its child list is handled by the caller). */
+    private static void unlink(int id) {
+        int mask = table.length - 1;
+        for (int i = slotHash(parents[id], names.hashAt(id)) & mask; ; i = (i + 1) & mask) {
+            if (table[i] == id) { table[i] = GONE; return; }
+            if (table[i] == EMPTY) return;
+        }
+    }
+
+    private static void rehash(int size) {
+        table     = emptyTable(size);
+        tableUsed = 0;
+        int mask  = size - 1;
+        for (int id = 0; id < docs; id++) {
+            if (parents[id] == DEAD) continue;
+            int i = slotHash(parents[id], names.hashAt(id)) & mask;
+            while (table[i] != EMPTY) i = (i + 1) & mask;
+            table[i] = id;
+            tableUsed++;
+        }
+    }
+
+    private static void compactIfSparse() {
+        if (dead > 4096 && dead > docs - dead) rebuildPostings();
+    }
+
+    /** Renumbers the live docs densely (keeping their order) and rebuilds everything from them. */
+    private static void rebuildPostings() {
+        int[] remap = new int[docs];
+        int   live  = 0;
+        for (int id = 0; id < docs; id++) remap[id] = parents[id] == DEAD ? -1 : live++;
+
+        NameArena oldNames   = names;
+        int[]     oldParents = parents;
+        int       oldDocs    = docs;
+        names     = new NameArena(live, oldNames.bytesUsed());
+        parents   = new int[Math.max(1024, live)];
+        docs      = 0;
+        dead      = 0;
+        table     = emptyTable(tableSizeFor(live));
+        tableUsed = 0;
+        children.clear();
+        postings.clear();
+        for (int id = 0; id < oldDocs; id++) {
+            if (remap[id] < 0) continue;
+            int nid = names.copyFrom(oldNames, id);
+            parents[nid] = oldParents[id] == ROOT ? ROOT : remap[oldParents[id]];
+            link(nid);
+            docs = nid + 1;
+            indexTrigrams(names.get(nid), nid);
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0, shift = 0, b;
+        do {
+            b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return v;
+    }
+}
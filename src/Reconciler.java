@@ -0,0 +1,139 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background metadata reconciliation, off the Event Dispatch Thread.
+ *
+ * One job at a time: it asks the manifest which categories changed, then fans
+ * the subfolders flagged in them (all of them for a wholly flagged category)
+ * out over a bounded ForkJoinPool and syncs each one against the Catalog
+ * (Writer.syncSubFolderMetadata).
+ * Progress and completion are reported back on the EDT through a Listener,
+ * so the sidebar can render immediately from the last known Catalog state.
+ *
+ * Calling start() while a job runs does not queue a second job — the running
+ * one is simply followed by one more pass once it finishes. A cancelled job
+ * counts as running until its background work has actually returned.
+ */
+public class Reconciler {
+
+    /** Callbacks, always invoked on the EDT. */
+    interface Listener {
+        void progress(int done, int total);
+        void finished(boolean changed);
+    }
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())));
+
+    private static Job      running  = null;
+    private static Listener listener = null;
+    private static boolean  rerun    = false;
+
+    /** Starts a reconciliation (EDT only). The latest listener receives all callbacks. */
+    static void start(Listener l) {
+        listener = l;
+        if (running != null) { rerun = true; return; }
+        running = new Job();
+        running.execute();
+    }
+
+    /** Cancels the running job; subfolders already synced stay synced. */
+    static void cancel() {
+        rerun = false;
+        if (running != null) running.cancel(false);
+    }
+
+    /** True while a job is in flight (a cancelled one included, until it stops). */
+    static boolean isRunning() {
+        return running != null;
+    }
+
+    private static final class Job extends SwingWorker<Boolean, int[]> {
+
+        /**
+         * Runs the sync, then hands back to the EDT from here rather than
+         * from done(): cancel() runs done() at once, while invokeAll may
+         * still be busy with this job's subfolders.
+         */
+        @Override
+        protected Boolean doInBackground() throws Exception {
+            boolean changed = false;
+            try {
+                changed = sync();
+                return changed;
+            } catch (Exception e) {
+                System.err.println("[Reconciler] Sync failed: " + e.getMessage());
+                throw e;
+            } finally {
+                boolean result = changed;
+                SwingUtilities.invokeLater(() -> ended(result));
+            }
+        }
+
+        private boolean sync() throws InterruptedException {
+            List<String> categories = ManifestManager.getFoldersNeedingUpdate();
+            if (categories.isEmpty()) return false;
+
+            // List every subfolder to sync first so progress has a real total:
+            // the whole category if it is flagged, else only its dirty subfolders.
+            // Each plan is taken before the disk is read, so a change that
+            // lands mid-scan keeps its flag.
+            List<String>                   cats  = new ArrayList<>();
+            List<ManifestManager.ScanPlan> plans = new ArrayList<>();
+            List<String[]>                 subs  = new ArrayList<>();
+            int                            total = 0;
+            for (String category : categories) {
+                if (isCancelled()) return true;
+                ManifestManager.ScanPlan plan = ManifestManager.beginScan(category);
+                plans.add(plan);
+                String[] names = Writer.planSubFolders(category, plan);
+                cats.add(category);
+                subs.add(names);
+                total += names.length;
+            }
+
+            AtomicInteger done   = new AtomicInteger();
+            int           finalT = total;
+            publish(new int[]{0, total});
+
+            for (int c = 0; c < cats.size() && !isCancelled(); c++) {
+                String category = cats.get(c);
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (String sub : subs.get(c)) {
+                    tasks.add(() -> {
+                        if (isCancelled()) return null;
+                        Writer.syncSubFolderMetadata(category, sub);
+                        publish(new int[]{done.incrementAndGet(), finalT});
+                        return null;
+                    });
+                }
+                POOL.invokeAll(tasks);
+                if (!isCancelled()) ManifestManager.markFolderScanned(category, plans.get(c));
+            }
+
+            Catalog.save();
+            return true;
+        }
+
+        @Override
+        protected void process(List<int[]> chunks) {
+            int[] last = chunks.get(chunks.size() - 1);
+            if (listener != null && !isCancelled()) listener.progress(last[0], last[1]);
+        }
+
+        /** On the EDT, once doInBackground has returned. */
+        private void ended(boolean changed) {
+            running = null;
+            if (listener != null) listener.finished(changed && !isCancelled());
+            if (rerun) {
+                rerun = false;
+                start(listener);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table model for archive-wide search results.
+ *
+ * Columns: "#", "Category", "Sub-folder" (blank for a category hit),
+ * "File" (blank for a category or sub-folder hit).
+ *
+ * Results arrive in batches while the search is still running; each batch is
+ * appended with one rows-inserted event, so rows already on screen (and the
+ * selection) stay put as the table grows.
+ */
+class SearchResultsModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"#", "Category", "Sub-folder", "File"};
+
+    // {category, subFolder|null, file|null}
+    private final List<String[]> rows = new ArrayList<>();
+
+    /** Empties the table for a new search. */
+    void clear() {
+        rows.clear();
+        fireTableDataChanged();
+    }
+
+    /** Appends one batch of {category, subFolder|null, file|null} hits. */
+    void append(List<String[]> batch) {
+        if (batch.isEmpty()) return;
+        int first = rows.size();
+        rows.addAll(batch);
+        fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    /** The {category, subFolder|null, file|null} hit shown in a view row. */
+    String[] hitAt(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int col) {
+        return COLUMNS[col];
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        if (col == 0) return row + 1;
+        String v = rows.get(row)[col - 1];
+        return v == null ? "" : v;
+    }
+}
@@ -2,9 +2,62 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 public class UI {
+
+    // ── Derived font cache ────────────────────────────────────────────────────
+
+    // base font → (style, size) → derived font; EDT only
+    private static final Map<Font, Map<Long, Font>> FONTS = new IdentityHashMap<>();
+
+    /**
+     * Same as base.deriveFont(style, size), but each style/size is derived
+     * once — paint code and renderers call this on every repaint.
+     */
+    static Font derive(Font base, int style, float size) {
+        Map<Long, Font> sizes = FONTS.computeIfAbsent(base, b -> new HashMap<>());
+        long key = ((long) style << 32) | (Float.floatToIntBits(size) & 0xffffffffL);
+        Font f = sizes.get(key);
+        if (f == null) {
+            f = base.deriveFont(style, size);
+            sizes.put(key, f);
+        }
+        return f;
+    }
+
+    // ── Pre-rendered button backgrounds ───────────────────────────────────────
+
+    private static final int BUTTON_IMAGES_MAX = 64;
+    private static final Map<Long, BufferedImage> BUTTON_IMAGES = new HashMap<>();
+
+    /**
+     * The antialiased rounded background of a buttonDesign() button, rendered
+     * once per size, scale and state (0 normal, 1 rollover, 2 pressed) and
+     * then only blitted.
+     */
+    private static BufferedImage buttonImage(int w, int h, double scale, int state) {
+        long key = ((long) w << 40) | ((long) h << 16) | ((long) (scale * 100) << 2) | state;
+        BufferedImage img = BUTTON_IMAGES.get(key);
+        if (img != null) return img;
+
+        if (BUTTON_IMAGES.size() >= BUTTON_IMAGES_MAX) BUTTON_IMAGES.clear();
+        img = new BufferedImage((int) Math.ceil(w * scale), (int) Math.ceil(h * scale),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = img.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.scale(scale, scale);
+        g2d.setColor(state == 2 ? Main.mainColor.darker()
+                : state == 1 ? Main.mainColor.brighter() : Main.mainColor);
+        g2d.fillRoundRect(0, 0, w, h, 40, 60);
+        g2d.dispose();
+        BUTTON_IMAGES.put(key, img);
+        return img;
+    }
     static void addGBComponent(JPanel p, Component c, int x, int y, int w, int h,
                                double weightx, double weighty, int fill, int anchor, Dimension dimension, int... insets) {
         GridBagConstraints gbc = new GridBagConstraints();
@@ -32,18 +85,13 @@ public class UI {
         JButton button = new JButton() {
             @Override
             protected void paintComponent(Graphics g) {
-                Graphics2D g2d = (Graphics2D) g.create();
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                if (getModel().isPressed()) {
-                    g2d.setColor(Main.mainColor.darker());
-                } else if (getModel().isRollover()) {
-                    g2d.setColor(Main.mainColor.brighter());
-                } else {
-                    g2d.setColor(Main.mainColor);
+                int w = getWidth(), h = getHeight();
+                if (w > 0 && h > 0) {
+                    int state = getModel().isPressed() ? 2 : getModel().isRollover() ? 1 : 0;
+                    double scale = ((Graphics2D) g).getTransform().getScaleX();
+                    g.drawImage(buttonImage(w, h, scale, state), 0, 0, w, h, null);
                 }
-                g2d.fillRoundRect(0, 0, getWidth(), getHeight(), 40, 60);
                 super.paintComponent(g);
-                g2d.dispose();
             }
         };
         button.setForeground(Color.white);
@@ -59,7 +107,7 @@ public class UI {
         button.setMaximumSize(new Dimension(Integer.MAX_VALUE, (int)(heightMultiplier * 60)));
         button.setPreferredSize(new Dimension(0, (int)(heightMultiplier * 60)));
         button.setMinimumSize(new Dimension(50, (int)(heightMultiplier * 60)));
-        button.setFont(Main.plainMainFont.deriveFont(Font.BOLD, (float) (heightMultiplier * 20f)));
+        button.setFont(derive(Main.plainMainFont, Font.BOLD, (float) (heightMultiplier * 20f)));
         button.setForeground(Color.white);
         button.setAlignmentX(Component.LEFT_ALIGNMENT);
         button.setBackground(Main.mainColor);
@@ -93,7 +141,7 @@ public class UI {
                 super.paintComponent(g);
                 Graphics2D graphics2D = (Graphics2D) g;
                 graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                graphics2D.setFont(Main.plainMainFont.deriveFont(Font.BOLD, (float)(heightMultiplier * 20f)));
+                graphics2D.setFont(derive(Main.plainMainFont, Font.BOLD, (float)(heightMultiplier * 20f)));
                 String sort = "Sort:";
                 FontMetrics fontMetrics = graphics2D.getFontMetrics();
                 int x = (int) (widthMultiplier * 70);
@@ -134,7 +182,7 @@ public class UI {
                 graphics2D.drawLine(centerX + 8, centerY + 8, centerX + 13, centerY + 13);
 
                 if (getText().isEmpty()) {
-                    graphics2D.setFont(getFont().deriveFont(Font.PLAIN));
+                    graphics2D.setFont(derive(getFont(), Font.PLAIN, getFont().getSize2D()));
                     graphics2D.setColor(new Color(170, 170, 170));
                     FontMetrics fm = graphics2D.getFontMetrics();
                     int textY = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
@@ -188,7 +236,7 @@ public class UI {
                 int logoY = (int) ((panelHeight - logoH) / 4);
                 g2d.drawImage(Main.img, logoX, logoY, logoW, logoH, this);
                 g2d.setColor(Color.white);
-                g2d.setFont(Main.mainFont.deriveFont(Font.BOLD, (float) (heightMultiplier * 25f)));
+                g2d.setFont(derive(Main.mainFont, Font.BOLD, (float) (heightMultiplier * 25f)));
                 FontMetrics fm1 = g2d.getFontMetrics();
                 String label1 = "SFADSMS";
 
@@ -197,7 +245,7 @@ public class UI {
                 int textY1 = logoY + logoH + padding + fm1.getAscent();
 
                 g2d.drawString(label1, textX1, textY1);
-                g2d.setFont(Main.plainMainFont.deriveFont(Font.BOLD, (float) (heightMultiplier * 20f))); // Smaller and thinner
+                g2d.setFont(derive(Main.plainMainFont, Font.BOLD, (float) (heightMultiplier * 20f))); // Smaller and thinner
                 FontMetrics fm2 = g2d.getFontMetrics();
                 String label2 = "FORMS";
 
@@ -241,14 +289,14 @@ public class UI {
                 String systemDescription = "SCHOOL FILING AND DATA STORAGE MANAGEMENT SYSTEM";
 
                 g2d.setColor(Color.white);
-                g2d.setFont(Main.mainFont.deriveFont(Font.BOLD, (float) (heightMultiplier * 40f)));
+                g2d.setFont(derive(Main.mainFont, Font.BOLD, (float) (heightMultiplier * 40f)));
                 FontMetrics fontMetrics = g2d.getFontMetrics();
 
                 int xPos = logoX + logoH + textOffsetLeft;
                 int yPos = logoY + fontMetrics.getAscent() + textOffsetTop;
 
                 g2d.drawString(schoolName, xPos, yPos);
-                g2d.setFont(Main.mainFont.deriveFont(Font.BOLD, (float) (heightMultiplier * 20f)));
+                g2d.setFont(derive(Main.mainFont, Font.BOLD, (float) (heightMultiplier * 20f)));
                 int subTextY = yPos + fontMetrics.getDescent() + (int)(heightMultiplier * 20);
 
                 g2d.drawString(systemDescription, xPos, subTextY);
@@ -1,71 +1,53 @@
 import java.io.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
- * Handles all disk writes: audit log and metadata .txt files.
+ * Handles all disk writes: audit log and Catalog metadata.
  *
- * Log format (one line per event):
+ * Log format (one line per event, written in batches by LogAppender):
  *   [YYYY-MM-DD HH:mm:ss] [ACTION] user=<os-user> | <key=value pairs>
  *
- * Metadata file layout (two-level structure):
+ * Metadata lives in the single Catalog (~/.SFADSMS/catalog.dat), one entry
+ * per file: index|filename|timestamp|size|type. Legacy per-subfolder
  *   .SFADSMS/.data/<category>/<subFolder>/<subFolder>data.txt
- *   Each line: index|filename|timestamp
+ * files are imported once, the first time their subfolder is synced.
  */
 public class Writer {
 
-    private static final String LOG = System.getProperty("user.home")
-            + File.separator + ".SFADSMS"
-            + File.separator + ".log"
-            + File.separator + ".log.txt";
-
     private static final String DATA_ROOT = System.getProperty("user.home")
             + File.separator + ".SFADSMS"
             + File.separator + ".data";
 
-    private static final DateTimeFormatter LOG_TS =
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // syncSubFolderMetadata passes before a subfolder that keeps changing is left to the next reconcile
+    private static final int SYNC_ATTEMPTS = 5;
 
     // ── Audit log ─────────────────────────────────────────────────────────────
 
     /**
-     * Writes one structured line to the audit log.
+     * Logs one structured event to the audit log. The event is stamped and
+     * attributed now, and written shortly after by LogAppender.
      * Format: [timestamp] [ACTION] user=<name> | <details>
      *
      * @param action  e.g. "UPLOAD", "DELETE-FILE", "RENAME-SUBFOLDER"
      * @param details e.g. "category=Grade7 | subfolder=Juan | file=report.pdf"
      */
     static void log(String action, String details) {
-        File logFile = new File(LOG);
-        File logDir  = logFile.getParentFile();
-        if (logDir != null && !logDir.exists()) logDir.mkdirs();
-
-        String line = String.format("[%s] [%-20s] user=%-15s | %s",
-                LocalDateTime.now().format(LOG_TS),
-                action,
-                Auth.currentUser(),
-                details);
-
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(logFile, true))) {
-            bw.write(line);
-            bw.newLine();
-        } catch (IOException e) {
-            throw new RuntimeException("Could not write to log: " + e.getMessage());
-        }
+        LogAppender.append(action, Auth.currentUser(), details);
     }
 
     /** Legacy single-string overload — kept so old call sites compile. */
     static void writeLog(String raw) {
-        File logFile = new File(LOG);
-        File logDir  = logFile.getParentFile();
-        if (logDir != null && !logDir.exists()) logDir.mkdirs();
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(logFile, true))) {
-            bw.write(raw);
-            bw.newLine();
-        } catch (IOException e) {
-            throw new RuntimeException("Could not write to log: " + e.getMessage());
-        }
+        LogAppender.appendRaw(raw);
+    }
+
+    /** Opens the log ahead of the first line (see LogAppender.begin). */
+    static void startLog() {
+        LogAppender.begin();
+    }
+
+    /** Waits until every line logged so far is in the log file (e.g. before reading it back). */
+    static void flushLog() {
+        LogAppender.flush();
     }
 
     // ── Convenience log helpers (called from Main) ────────────────────────────
@@ -112,143 +94,254 @@ public class Writer {
                 + " | new=" + newName);
     }
 
-    // ── Fast path: O(1) single-file append (used by upload) ──────────────────
+    // ── Fast path: single-file append (used by upload) ───────────────────────
 
     /**
-     * Appends exactly one entry to a subfolder's metadata .txt.
-     * Does NOT call Fetcher.listFiles — only counts existing lines (O(n) read,
-     * no directory enumeration).
-     *
-     * Metadata file: .data/<category>/<subFolder>/<subFolder>data.txt
+     * Records exactly one new file in the Catalog — one journal line appended,
+     * independent of how many files the subfolder already holds.
+     * No directory enumeration unless the category/subfolder has never been
+     * indexed — then it is indexed once so the Catalog listing stays complete.
      */
     static void appendToMetadata(String category, String subFolder, String fileName) {
-        File dataFile = metadataFile(category, subFolder);
-        File parentDir = dataFile.getParentFile();
-        if (parentDir != null && !parentDir.exists()) parentDir.mkdirs();
-
-        int nextIndex = 0;
-        if (dataFile.exists()) {
-            try (BufferedReader br = new BufferedReader(new FileReader(dataFile))) {
-                while (br.readLine() != null) nextIndex++;
-            } catch (IOException e) {
-                System.err.println("[Writer] Could not count lines for "
-                        + category + "/" + subFolder + ": " + e.getMessage());
-            }
-        }
-
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(dataFile, true))) {
-            bw.write(nextIndex + "|" + fileName + "|" + Main.dateFormat);
-            bw.newLine();
-        } catch (IOException e) {
-            throw new RuntimeException("[Writer] Could not append metadata for "
-                    + category + "/" + subFolder + ": " + e.getMessage());
+        if (!Catalog.hasCategory(category))                   updateCategoryMetadata(category);
+        else if (!Catalog.hasSubFolder(category, subFolder)) syncSubFolderMetadata(category, subFolder);
+
+        if (!Catalog.hasFile(category, subFolder, fileName)) {
+            File f = new File(DATA_ROOT + File.separator + category
+                    + File.separator + subFolder + File.separator + fileName);
+            Catalog.addFile(category, subFolder, fileName, System.currentTimeMillis(), f.length());
+            ManifestManager.fingerprintAdded(category, subFolder, fileName);
+            Fetcher.invalidate(category, subFolder);
         }
+        Catalog.save();
     }
 
     // ── Manifest-driven full sync (external-change detection only) ────────────
 
     /**
      * Processes only the categories flagged true in the manifest.
-     * For each such category, syncs every subfolder's metadata file.
+     * For each such category, syncs every subfolder against the Catalog.
+     * Synchronous — the UI goes through Reconciler, which does the same work
+     * in the background.
      */
     static void updateAllChangedFolders() {
         List<String> needsUpdate = ManifestManager.getFoldersNeedingUpdate();
         for (String category : needsUpdate) {
-            updateCategoryMetadata(category);
-            ManifestManager.markFolderScanned(category);
+            ManifestManager.ScanPlan plan = ManifestManager.beginScan(category);
+            for (String sub : planSubFolders(category, plan))
+                syncSubFolderMetadata(category, sub);
+            ManifestManager.markFolderScanned(category, plan);
         }
+        Catalog.save();
     }
 
     /**
      * Full sync for one category: iterates all its subfolders and
-     * syncs each subfolder's metadata .txt against actual files on disk.
+     * syncs each subfolder's Catalog entries against actual files on disk.
      * Expensive (calls listFiles) — only reached for external changes.
      */
     static void updateCategoryMetadata(String category) {
-        File catDir = new File(DATA_ROOT + File.separator + category);
-        File[] subDirs = catDir.listFiles(File::isDirectory);
-        if (subDirs == null) return;
+        for (String sub : prepareCategorySync(category))
+            syncSubFolderMetadata(category, sub);
+    }
 
-        for (File sub : subDirs) {
-            syncSubFolderMetadata(category, sub.getName());
-        }
+    /**
+     * Subfolders a manifest scan plan has to sync: every subfolder on disk
+     * when the whole category is flagged, otherwise only the flagged ones.
+     */
+    static String[] planSubFolders(String category, ManifestManager.ScanPlan plan) {
+        if (plan.whole || !Catalog.hasCategory(category)) return prepareCategorySync(category);
+        return plan.subFolders.toArray(new String[0]);
+    }
+
+    /**
+     * First half of a category sync: registers the category in the Catalog,
+     * drops subfolders that vanished from disk and returns the ones still
+     * there, ready for syncSubFolderMetadata.
+     */
+    static String[] prepareCategorySync(String category) {
+        DiskListing.Dir catDir = DiskListing.read(category, null);
+        if (catDir == null) return new String[0];
+
+        Catalog.ensureCategory(category);
+        String[] names = catDir.directories();
+        Catalog.retainSubFolders(category, new HashSet<>(Arrays.asList(names)));
+        ManifestManager.recordFingerprint(category, null, catDir.modified, names);
+        Fetcher.invalidate(null, null);
+        Fetcher.invalidate(category, null);
+        return names;
     }
 
     /**
-     * Bidirectional sync of one subfolder's metadata .txt.
+     * Bidirectional sync of one subfolder's Catalog entries.
      * Steps:
-     *  1. Read existing .txt entries.
+     *  1. Read existing entries (or import a legacy <subFolder>data.txt once).
      *  2. List actual files on disk.
      *  3. Drop entries whose files no longer exist.
      *  4. Add entries for files not yet recorded.
-     *  5. Rewrite only if something changed; reindex from 0.
+     *  5. Store only if something changed; surviving entries keep their index.
+     * A subfolder that no longer exists on disk is dropped from the Catalog.
+     * Safe to call for different subfolders in parallel, and alongside
+     * uploads and deletes: the result is stored only if the Catalog's
+     * record did not change meanwhile, otherwise the sync starts over.
      */
-    private static void syncSubFolderMetadata(String category, String subFolder) {
-        File dataFile = metadataFile(category, subFolder);
-        File subDir   = new File(DATA_ROOT + File.separator + category
-                + File.separator + subFolder);
-
-        // Step 1: read existing metadata
-        List<String[]> existing   = new ArrayList<>();
-        Set<String>    knownNames = new HashSet<>();
-        if (dataFile.exists()) {
-            try (BufferedReader br = new BufferedReader(new FileReader(dataFile))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length >= 2) {
-                        existing.add(parts);
-                        knownNames.add(parts[1]);
-                    }
-                }
-            } catch (Exception e) {
-                System.err.println("[Writer] Error reading metadata: "
-                        + category + "/" + subFolder);
-            }
+    static void syncSubFolderMetadata(String category, String subFolder) {
+        for (int attempt = 0; attempt < SYNC_ATTEMPTS; attempt++)
+            if (trySyncSubFolder(category, subFolder)) return;
+        // still changing: the changes made meanwhile are in the Catalog, the
+        // rest is picked up by the next reconcile of this subfolder
+        ManifestManager.markSubFolderChanged(category, subFolder);
+    }
+
+    /** One pass of syncSubFolderMetadata; false if the Catalog changed under it. */
+    private static boolean trySyncSubFolder(String category, String subFolder) {
+        long version = Catalog.version(category, subFolder); // before anything is read
+
+        // Step 2 first: one pass lists the files with their sizes and mtimes
+        DiskListing.Dir subDir = DiskListing.read(category, subFolder);
+        if (subDir == null) {
+            if (!Catalog.removeSubFolderIf(category, subFolder, version)) return false;
+            ManifestManager.dropFingerprints(category, subFolder);
+            Fetcher.invalidate(category, null);
+            Fetcher.invalidate(category, subFolder);
+            return true;
         }
 
-        // Step 2: list actual files on disk
-        String[]    diskArr   = Fetcher.getFolderData(category, subFolder);
+        // Step 1: read existing entries
+        List<Catalog.Entry> existing = Catalog.entries(category, subFolder);
+        boolean             unknown  = existing == null;
+        if (unknown) existing = readLegacyMetadata(category, subFolder);
+
+        // Step 2: the files on disk (the directory mtime was read first, for the fingerprint)
+        String[]    diskArr   = subDir.dataFiles();
         Set<String> diskFiles = new HashSet<>(Arrays.asList(diskArr));
+        ManifestManager.recordFingerprint(category, subFolder, subDir.modified, diskArr);
 
         // Step 3: drop stale entries
-        List<String[]> valid    = new ArrayList<>();
-        boolean        hadStale = false;
-        for (String[] e : existing) {
-            if (diskFiles.contains(e[1])) { valid.add(e); }
-            else                          { hadStale = true; }
+        List<Catalog.Entry> valid      = new ArrayList<>();
+        Set<String>         knownNames = new HashSet<>();
+        boolean             hadStale   = false;
+        int                 nextIndex  = 0;
+        for (Catalog.Entry e : existing) {
+            if (diskFiles.contains(e.name) && knownNames.add(e.name)) {
+                valid.add(e);
+                nextIndex = Math.max(nextIndex, e.index + 1);
+            } else {
+                hadStale = true;
+            }
         }
 
-        // Step 4: new files not yet in metadata
-        List<String[]> newEntries = new ArrayList<>();
+        // Step 4: new files not yet recorded
+        List<Catalog.Entry> newEntries = new ArrayList<>();
         for (String f : diskArr) {
-            if (!knownNames.contains(f))
-                newEntries.add(new String[]{null, f, Main.dateFormat});
+            if (knownNames.contains(f)) continue;
+            DiskListing.Item file = subDir.get(f);
+            newEntries.add(new Catalog.Entry(nextIndex++, f, file.modified,
+                    file.size, Catalog.typeOf(f)));
         }
 
-        // Step 5: rewrite only if something changed
-        if (!hadStale && newEntries.isEmpty()) return;
+        // Step 5: store only if something changed
+        if (!unknown && !hadStale && newEntries.isEmpty()) return true;
+
+        valid.addAll(newEntries);
+        if (!Catalog.putSubFolderIf(category, subFolder, valid, version)) return false;
+        if (unknown) Fetcher.invalidate(category, null);
+        Fetcher.invalidate(category, subFolder);
+        return true;
+    }
 
-        List<String[]> final_ = new ArrayList<>(valid);
-        final_.addAll(newEntries);
+    /**
+     * Reads a pre-Catalog <subFolder>data.txt so original indexes and
+     * timestamps survive the migration. The legacy file is left untouched
+     * and never read again once the subfolder is in the Catalog.
+     */
+    private static List<Catalog.Entry> readLegacyMetadata(String category, String subFolder) {
+        List<Catalog.Entry> entries  = new ArrayList<>();
+        File                dataFile = metadataFile(category, subFolder);
+        if (!dataFile.exists()) return entries;
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(dataFile, false))) {
-            for (int i = 0; i < final_.size(); i++) {
-                String[] e  = final_.get(i);
-                String   ts = (e.length >= 3 && e[2] != null) ? e[2] : Main.dateFormat;
-                bw.write(i + "|" + e[1] + "|" + ts);
-                bw.newLine();
+        File subDir = dataFile.getParentFile();
+        try (BufferedReader br = new BufferedReader(new FileReader(dataFile))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("\\|");
+                if (parts.length < 2) continue;
+                int index;
+                try { index = Integer.parseInt(parts[0]); }
+                catch (NumberFormatException e) { index = entries.size(); }
+                File file = new File(subDir, parts[1]);
+                long ts   = parts.length >= 3 ? Catalog.parseTimestamp(parts[2]) : 0L;
+                if (ts == 0L) ts = file.lastModified();
+                entries.add(new Catalog.Entry(index, parts[1], ts,
+                        file.length(), Catalog.typeOf(parts[1])));
             }
         } catch (IOException e) {
-            throw new RuntimeException("[Writer] Could not write metadata for "
-                    + category + "/" + subFolder + ": " + e.getMessage());
+            System.err.println("[Writer] Error reading legacy metadata: "
+                    + category + "/" + subFolder);
         }
+        return entries;
+    }
+
+    // ── Structural changes made from Main ─────────────────────────────────────
+
+    /** Keeps the Catalog in step with a subfolder renamed on disk. */
+    static void renameSubFolderMetadata(String category, String oldName, String newName) {
+        Catalog.moveSubFolder(category, oldName, category, newName);
+        ManifestManager.moveFingerprint(category, oldName, category, newName);
+        Fetcher.invalidate(category, null);
+        Fetcher.invalidate(category, oldName);
+        Fetcher.invalidate(category, newName);
+        Catalog.save();
+    }
+
+    /**
+     * Keeps the Catalog in step with a subfolder moved to another category on disk.
+     * A destination that was never indexed is indexed in full instead.
+     */
+    static void moveSubFolderMetadata(String fromCategory, String subFolder, String toCategory) {
+        if (Catalog.hasCategory(toCategory)) {
+            Catalog.moveSubFolder(fromCategory, subFolder, toCategory, subFolder);
+            ManifestManager.moveFingerprint(fromCategory, subFolder, toCategory, subFolder);
+        } else {
+            Catalog.removeSubFolder(fromCategory, subFolder);
+            ManifestManager.dropFingerprints(fromCategory, subFolder);
+            updateCategoryMetadata(toCategory);
+        }
+        Fetcher.invalidate(fromCategory, null);
+        Fetcher.invalidate(fromCategory, subFolder);
+        Fetcher.invalidate(toCategory, null);
+        Fetcher.invalidate(toCategory, subFolder);
+        Catalog.save();
+    }
+
+    /** Drops a deleted subfolder from the Catalog. */
+    static void removeSubFolderMetadata(String category, String subFolder) {
+        Catalog.removeSubFolder(category, subFolder);
+        ManifestManager.dropFingerprints(category, subFolder);
+        Fetcher.invalidate(category, null);
+        Fetcher.invalidate(category, subFolder);
+        Catalog.save();
+    }
+
+    /** Keeps the Catalog in step with a category renamed on disk. */
+    static void renameCategoryMetadata(String oldName, String newName) {
+        Catalog.renameCategory(oldName, newName);
+        Fetcher.invalidateCategory(oldName);
+        Fetcher.invalidateCategory(newName);
+        Catalog.save();
+    }
+
+    /** Drops a deleted category from the Catalog. */
+    static void removeCategoryMetadata(String category) {
+        Catalog.removeCategory(category);
+        Fetcher.invalidateCategory(category);
+        Catalog.save();
     }
 
     // ── Helpers ───────────────────────────────────────────────────────────────
 
     /**
-     * Canonical path for a subfolder's metadata file:
+     * Legacy per-subfolder metadata file, read only for migration:
      * .data/<category>/<subFolder>/<subFolder>data.txt
      */
     static File metadataFile(String category, String subFolder) {
@@ -288,36 +381,15 @@ public class Writer {
     }
 
     /**
-     * Remove a single file entry from a subfolder's metadata .txt.
-     * Called when a file is moved OUT of a subfolder.
+     * Remove a single file entry from a subfolder's Catalog entries.
+     * Called when a file is moved, renamed or deleted OUT of a subfolder.
+     * One journal line appended — the rest of the subfolder is not rewritten.
      */
     static void removeFromMetadata(String category, String subFolder, String fileName) {
-        File dataFile = metadataFile(category, subFolder);
-        if (!dataFile.exists()) return;
-
-        java.util.List<String[]> lines = new java.util.ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(dataFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length >= 2 && parts[1].equals(fileName)) continue; // skip this one
-                lines.add(parts);
-            }
-        } catch (IOException e) {
-            System.err.println("[Writer] Could not read metadata for removeFromMetadata: " + e.getMessage());
-            return;
-        }
-
-        // Rewrite with re-indexed entries
-        try (java.io.BufferedWriter bw = new BufferedWriter(new java.io.FileWriter(dataFile, false))) {
-            for (int i = 0; i < lines.size(); i++) {
-                String[] p = lines.get(i);
-                String ts = (p.length >= 3 && p[2] != null) ? p[2] : Main.dateFormat;
-                bw.write(i + "|" + p[1] + "|" + ts);
-                bw.newLine();
-            }
-        } catch (java.io.IOException e) {
-            System.err.println("[Writer] Could not write metadata after removeFromMetadata: " + e.getMessage());
+        if (Catalog.removeFile(category, subFolder, fileName)) {
+            ManifestManager.fingerprintRemoved(category, subFolder, fileName);
+            Fetcher.invalidate(category, subFolder);
+            Catalog.save();
         }
     }
-}
\ No newline at end of file
+}